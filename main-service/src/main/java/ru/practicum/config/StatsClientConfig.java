@@ -1,19 +1,24 @@
 package ru.practicum.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import ru.practicum.ewm.client.stats.StatsClient;
+import ru.practicum.ewm.client.stats.StatsClientProperties;
 
 @Configuration
+@EnableConfigurationProperties(StatsClientProperties.class)
 public class StatsClientConfig {
 
     @Value("${MainServiceApp.stats-service.url:http://localhost:9090}")
     private String statsServiceUrl;
 
     @Bean
-    public StatsClient statsClient(RestTemplateBuilder restTemplateBuilder) {
-        return new StatsClient(statsServiceUrl, restTemplateBuilder);
+    public StatsClient statsClient(RestTemplateBuilder restTemplateBuilder, StatsClientProperties properties,
+                                   MeterRegistry meterRegistry) {
+        return new StatsClient(statsServiceUrl, restTemplateBuilder, properties, meterRegistry);
     }
 }
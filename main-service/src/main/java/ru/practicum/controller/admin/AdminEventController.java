@@ -15,6 +15,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import ru.practicum.model.dto.event.EventCursor;
 import ru.practicum.model.dto.event.EventDto;
 import ru.practicum.model.dto.event.EventSearchAdmin;
 import ru.practicum.model.dto.event.UpdateAdminEventDto;
@@ -41,7 +42,8 @@ public class AdminEventController {
                                                  @RequestParam(required = false)
                                                  @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
                                                  @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                                 @RequestParam(defaultValue = "10") @Positive int size) {
+                                                 @RequestParam(defaultValue = "10") @Positive int size,
+                                                 @RequestParam(required = false) String cursor) {
 
         EventSearchAdmin search = EventSearchAdmin.builder()
                 .users(users)
@@ -51,10 +53,12 @@ public class AdminEventController {
                 .rangeEnd(rangeEnd)
                 .from(from)
                 .size(size)
+                .cursor(EventCursor.decode(cursor))
                 .build();
 
         log.info("Получен запрос GET /admin/events с параметрами {}", search);
-        return ResponseEntity.ok(eventService.searchAdmin(search));
+        List<EventDto> events = eventService.searchAdmin(search);
+        return EventCursor.page(events, search.getCursor(), size);
     }
 
     @PatchMapping("/{eventId}")
@@ -2,17 +2,20 @@ package ru.practicum.controller.common;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.practicum.model.dto.compilation.CompilationDto;
 import ru.practicum.service.CompilationService;
-
-import java.util.List;
+import ru.practicum.service.PinnedCompilationsCache;
 
 @RestController
 @RequiredArgsConstructor
@@ -21,13 +24,45 @@ import java.util.List;
 @Validated
 public class PublicCompilationController {
     private final CompilationService compilationService;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
 
     @GetMapping
-    public ResponseEntity<List<CompilationDto>> findAll(@RequestParam(required = false) Boolean pinned,
-                                                        @RequestParam(defaultValue = "0") Integer from,
-                                                        @RequestParam(defaultValue = "10") Integer size) {
-        log.info("Получен запрос GET /compilations");
-        return ResponseEntity.ok(compilationService.findAll(pinned, from, size));
+    public ResponseEntity<?> findAll(@RequestParam(required = false) Boolean pinned,
+                                     @RequestParam(defaultValue = "0") Integer from,
+                                     @RequestParam(defaultValue = "10") Integer size,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                     String ifNoneMatch) {
+        log.info("Получен запрос GET /compilations?pinned={}", pinned);
+        if (!Boolean.TRUE.equals(pinned)) {
+            return ResponseEntity.ok(compilationService.findAll(pinned, from, size));
+        }
+        // закреплённые подборки отдаются из кэша уже сериализованными
+        PinnedCompilationsCache.RenderedPage page = pinnedCompilationsCache.get(from, size,
+                () -> compilationService.findAll(true, from, size));
+        if (matchesEtag(ifNoneMatch, page.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(page.etag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(page.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(page.body());
+    }
+
+    // If-None-Match сравнивается слабо (RFC 9110): префикс W/ игнорируется, допускаются список тегов и *
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @GetMapping("/{compId}")
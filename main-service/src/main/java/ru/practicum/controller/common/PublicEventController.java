@@ -15,11 +15,12 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.SimpleDateTimeFormatter;
-import ru.practicum.ewm.client.stats.StatsClient;
+import ru.practicum.model.dto.event.EventCursor;
 import ru.practicum.model.dto.event.EventDto;
 import ru.practicum.model.dto.event.EventSearchCommon;
 import ru.practicum.model.dto.event.EventSearchOrder;
 import ru.practicum.service.EventService;
+import ru.practicum.service.StatsReporter;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -32,7 +33,7 @@ import java.util.List;
 public class PublicEventController {
 
     private final EventService service;
-    private final StatsClient statsClient;
+    private final StatsReporter statsReporter;
 
     @GetMapping
     public ResponseEntity<List<EventDto>> findAll(@RequestParam(required = false) String text,
@@ -46,6 +47,7 @@ public class PublicEventController {
                                                   @RequestParam(defaultValue = "EVENT_DATE") String sort,
                                                   @RequestParam(defaultValue = "0") @PositiveOrZero int from,
                                                   @RequestParam(defaultValue = "10") @Positive int size,
+                                                  @RequestParam(required = false) String cursor,
                                                   HttpServletRequest request) {
 
         sendStats(request);
@@ -60,30 +62,28 @@ public class PublicEventController {
                 .sort(EventSearchOrder.valueOf(sort))
                 .from(from)
                 .size(size)
+                .cursor(EventCursor.decode(cursor))
                 .build();
         log.info("Получен запрос GET /events с параметрами {}", eventSearchCommon);
-        return ResponseEntity.ok(service.searchCommon(eventSearchCommon));
+        List<EventDto> events = service.searchCommon(eventSearchCommon);
+        return EventCursor.page(events, eventSearchCommon.getCursor(), size);
     }
 
     @GetMapping("/{eventId}")
     public ResponseEntity<EventDto> findById(@PathVariable long eventId, HttpServletRequest request) {
-        sendStats(request);
+        long hitTicket = sendStats(request);
 
         log.info("Получен запрос GET /events/{}", eventId);
-        return ResponseEntity.ok(service.findById(eventId));
+        return ResponseEntity.ok(service.findById(eventId, hitTicket));
     }
 
-    private void sendStats(HttpServletRequest request) {
-        try {
-            String appName = "main-service";
-            statsClient.save(EndpointHitDto.builder()
-                    .app(appName)
-                    .uri(request.getRequestURI())
-                    .ip(request.getRemoteAddr())
-                    .timestamp(SimpleDateTimeFormatter.toString(LocalDateTime.now()))
-                    .build());
-        } catch (Exception e) {
-            log.error("Ошибка при отправке статистики: {}", e.getMessage());
-        }
+    private long sendStats(HttpServletRequest request) {
+        String appName = "main-service";
+        return statsReporter.report(EndpointHitDto.builder()
+                .app(appName)
+                .uri(request.getRequestURI())
+                .ip(request.getRemoteAddr())
+                .timestamp(SimpleDateTimeFormatter.toString(LocalDateTime.now()))
+                .build());
     }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ import org.springframework.web.bind.annotation.RestController;
 import ru.practicum.model.dto.participationRequest.EventRequestStatusUpdateRequest;
 import ru.practicum.model.dto.participationRequest.EventRequestStatusUpdateResult;
 import ru.practicum.model.dto.participationRequest.ParticipationRequestDto;
+import ru.practicum.model.dto.event.EventCursor;
 import ru.practicum.model.dto.event.EventDto;
 import ru.practicum.model.dto.event.UpdateEventDto;
 import ru.practicum.service.EventService;
@@ -37,9 +38,12 @@ public class PrivateEventController {
     @GetMapping
     public ResponseEntity<List<EventDto>> getEventsByUserId(@PathVariable Long userId,
                                                             @RequestParam(defaultValue = "0") Integer from,
-                                                            @RequestParam(defaultValue = "10") Integer size) {
+                                                            @RequestParam(defaultValue = "10") Integer size,
+                                                            @RequestParam(required = false) String cursor) {
         log.info("Получен запрос GET /users/{}/events", userId);
-        return ResponseEntity.ok(eventService.findByUserId(userId, from, size));
+        EventCursor eventCursor = EventCursor.decode(cursor);
+        List<EventDto> events = eventService.findByUserId(userId, from, size, eventCursor);
+        return EventCursor.page(events, eventCursor, size);
     }
 
     @GetMapping("/{eventId}")
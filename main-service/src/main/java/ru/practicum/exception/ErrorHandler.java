@@ -1,6 +1,7 @@
 package ru.practicum.exception;
 
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -41,6 +42,18 @@ public class ErrorHandler {
                 .build();
     }
 
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ApiError handleDataIntegrityViolation(final DataIntegrityViolationException e) {
+        return ApiError.builder()
+                .errors(Arrays.stream(e.getStackTrace()).map(StackTraceElement::toString).toList())
+                .status(HttpStatus.CONFLICT.toString())
+                .reason("Нарушены условия целостности данных.")
+                .message(e.getMostSpecificCause().getMessage())
+                .timestamp(SimpleDateTimeFormatter.toString(LocalDateTime.now()))
+                .build();
+    }
+
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -104,6 +117,18 @@ public class ErrorHandler {
                 .build();
     }
 
+    @ExceptionHandler(ValidationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiError handleValidationException(final ValidationException e) {
+        return ApiError.builder()
+                .errors(Arrays.stream(e.getStackTrace()).map(StackTraceElement::toString).toList())
+                .status(HttpStatus.BAD_REQUEST.toString())
+                .reason("Некорректный запрос.")
+                .message(e.getMessage())
+                .timestamp(SimpleDateTimeFormatter.toString(LocalDateTime.now()))
+                .build();
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ApiError handleGeneric(final Throwable e) {
@@ -6,6 +6,7 @@ import ru.practicum.model.dto.compilation.UpdateCompilationRequest;
 import ru.practicum.model.entity.Compilation;
 import ru.practicum.model.entity.Event;
 
+import java.util.Comparator;
 import java.util.Set;
 
 public class CompilationMapper {
@@ -30,7 +31,10 @@ public class CompilationMapper {
                 .id(compilation.getId())
                 .title(compilation.getTitle())
                 .pinned(compilation.getPinned())
-                .events(compilation.getEvents().stream().toList())
+                .events(compilation.getEvents().stream()
+                        .sorted(Comparator.comparing(Event::getId))
+                        .map(EventMapper::toEventShortDto)
+                        .toList())
                 .build();
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package ru.practicum.mapper;
 
 
 import ru.practicum.model.dto.event.EventDto;
+import ru.practicum.model.dto.event.EventShortDto;
 import ru.practicum.model.dto.event.EventState;
 import ru.practicum.model.entity.Category;
 import ru.practicum.model.entity.Event;
@@ -31,6 +32,20 @@ public class EventMapper {
                 .build();
     }
 
+    public static EventShortDto toEventShortDto(Event event) {
+        return EventShortDto.builder()
+                .id(event.getId())
+                .annotation(event.getAnnotation())
+                .category(CategoryMapper.categoryToDto(event.getCategory()))
+                .confirmedRequests(event.getConfirmedRequests())
+                .eventDate(event.getEventDate())
+                .initiator(UserMapper.toUserShortDto(event.getInitiator()))
+                .paid(event.getPaid())
+                .title(event.getTitle())
+                .views(event.getViews())
+                .build();
+    }
+
 
     public static Event newRequestToEvent(EventDto eventDto, User user, Category category) {
         return Event.builder()
@@ -2,6 +2,7 @@ package ru.practicum.mapper;
 
 import ru.practicum.model.dto.participationRequest.ParticipationRequestDto;
 import ru.practicum.model.entity.ParticipationRequest;
+import ru.practicum.repository.ParticipationRequestRepository;
 
 public class ParticipationRequestMapper {
     public static ParticipationRequestDto toParticipationRequestDto(ParticipationRequest participationRequest) {
@@ -13,4 +14,14 @@ public class ParticipationRequestMapper {
                 .created(participationRequest.getCreated())
                 .build();
     }
+
+    public static ParticipationRequestDto toParticipationRequestDto(ParticipationRequestRepository.ChangedRequest changed) {
+        return ParticipationRequestDto.builder()
+                .id(changed.getId())
+                .requester(changed.getRequester())
+                .event(changed.getEvent())
+                .status(changed.getStatus())
+                .created(changed.getCreated())
+                .build();
+    }
 }
@@ -1,6 +1,7 @@
 package ru.practicum.mapper;
 
 import ru.practicum.model.dto.user.UserDto;
+import ru.practicum.model.dto.user.UserShortDto;
 import ru.practicum.model.entity.User;
 
 public class UserMapper {
@@ -26,4 +27,11 @@ public class UserMapper {
                 .name(user.getName())
                 .build();
     }
+
+    public static UserShortDto toUserShortDto(User user) {
+        return UserShortDto.builder()
+                .id(user.getId())
+                .name(user.getName())
+                .build();
+    }
 }
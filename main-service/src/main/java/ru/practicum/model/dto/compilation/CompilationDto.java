@@ -6,7 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import ru.practicum.model.entity.Event;
+import ru.practicum.model.dto.event.EventShortDto;
 
 import java.util.List;
 
@@ -25,5 +25,5 @@ public class CompilationDto {
 
     private Boolean pinned;
 
-    private List<Event> events;
+    private List<EventShortDto> events;
 }
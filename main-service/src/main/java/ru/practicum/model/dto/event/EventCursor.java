@@ -0,0 +1,62 @@
+package ru.practicum.model.dto.event;
+
+import org.springframework.http.ResponseEntity;
+import ru.practicum.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Непрозрачный курсор постраничной выдачи событий: дата и id последнего события страницы.
+ * Режим курсоров включается явным значением: cursor=first - первая страница, дальше - значение
+ * заголовка X-Next-Cursor предыдущей страницы. Пустой cursor= отклоняется.
+ */
+public record EventCursor(LocalDateTime eventDate, Long id) {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String FIRST_PAGE = "first";
+
+    private static final String SEPARATOR = "|";
+
+    public static EventCursor decode(String token) {
+        if (token == null) {
+            return null;
+        }
+        if (token.isBlank()) {
+            throw new ValidationException("Пустой курсор: для первой страницы укажите cursor=" + FIRST_PAGE);
+        }
+        if (FIRST_PAGE.equals(token)) {
+            return new EventCursor(null, null);
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            return new EventCursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new ValidationException("Некорректный курсор: " + token);
+        }
+    }
+
+    /**
+     * Ответ со страницей событий; в режиме курсоров полная страница получает заголовок со следующим курсором.
+     */
+    public static ResponseEntity<List<EventDto>> page(List<EventDto> events, EventCursor cursor, int size) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (cursor != null && events.size() == size) {
+            response.header(NEXT_CURSOR_HEADER, after(events.getLast()).encode());
+        }
+        return response.body(events);
+    }
+
+    public static EventCursor after(EventDto event) {
+        return new EventCursor(event.getEventDate(), event.getId());
+    }
+
+    public String encode() {
+        String raw = eventDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -20,4 +20,5 @@ public class EventSearchAdmin {
     private LocalDateTime rangeEnd;
     private Integer from;
     private Integer size;
+    private EventCursor cursor;
 }
@@ -22,4 +22,5 @@ public class EventSearchCommon {
     private EventSearchOrder sort;
     private Integer from;
     private Integer size;
+    private EventCursor cursor;
 }
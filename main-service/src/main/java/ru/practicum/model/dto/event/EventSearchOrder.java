@@ -2,5 +2,6 @@ package ru.practicum.model.dto.event;
 
 public enum EventSearchOrder {
     EVENT_DATE,
-    VIEWS
+    VIEWS,
+    RELEVANCE
 }
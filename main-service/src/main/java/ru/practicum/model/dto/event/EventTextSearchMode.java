@@ -0,0 +1,6 @@
+package ru.practicum.model.dto.event;
+
+public enum EventTextSearchMode {
+    LIKE,
+    FULL_TEXT
+}
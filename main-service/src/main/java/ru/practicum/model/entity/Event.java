@@ -28,7 +28,8 @@ public class Event {
     @JoinColumn(name = "category_id", nullable = false)
     private Category category;
 
-    @Column(name = "confirmed_requests", nullable = false)
+    // изменяется только атомарными запросами EventRepository.reserveParticipants/releaseParticipants
+    @Column(name = "confirmed_requests", nullable = false, updatable = false)
     private Long confirmedRequests = 0L;
 
     @Column(name = "created_on", nullable = false)
@@ -70,6 +71,7 @@ public class Event {
     @Column(nullable = false, length = 120)
     private String title;
 
-    @Column
+    // обновляется только синхронизацией просмотров (EventViewsSynchronizer)
+    @Column(updatable = false)
     private Long views;
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package ru.practicum.model.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Поисковый вектор события. Хранится отдельно от events, чтобы обычные выборки событий
+ * не тянули tsvector; заполняется EventRepository.refreshSearchVector.
+ */
+@Entity(name = "event_search")
+@Getter
+@Setter
+@NoArgsConstructor
+public class EventSearchDocument {
+    @Id
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "search_vector", columnDefinition = "tsvector", insertable = false, updatable = false)
+    private String searchVector;
+}
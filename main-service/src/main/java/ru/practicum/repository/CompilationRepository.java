@@ -1,11 +1,13 @@
 package ru.practicum.repository;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.practicum.model.entity.Compilation;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,6 +15,18 @@ public interface CompilationRepository extends JpaRepository<Compilation, Long>
 
     List<Compilation> findByTitleIgnoreCase(String title);
 
-    Page<Compilation> findByPinned(Boolean pinned, Pageable pageable);
+    boolean existsByPinnedTrueAndEventsIdIn(Collection<Long> eventIds);
+
+    @Query("SELECT c.id FROM compilations c " +
+            "WHERE (:pinned IS NULL OR c.pinned = :pinned) " +
+            "ORDER BY c.id")
+    List<Long> findIds(@Param("pinned") Boolean pinned, Pageable pageable);
+
+    @Query("SELECT DISTINCT c FROM compilations c " +
+            "LEFT JOIN FETCH c.events e " +
+            "LEFT JOIN FETCH e.category " +
+            "LEFT JOIN FETCH e.initiator " +
+            "WHERE c.id IN :ids")
+    List<Compilation> findAllWithEventsByIdIn(@Param("ids") Collection<Long> ids);
 }
 
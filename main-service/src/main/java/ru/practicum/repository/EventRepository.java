@@ -1,12 +1,19 @@
 package ru.practicum.repository;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.model.dto.event.EventCursor;
 import ru.practicum.model.dto.event.EventSearchAdmin;
 import ru.practicum.model.dto.event.EventSearchCommon;
+import ru.practicum.model.dto.event.EventSearchOrder;
 import ru.practicum.model.dto.event.EventState;
 import ru.practicum.model.entity.Event;
 
@@ -15,11 +22,7 @@ import java.util.List;
 
 @Repository
 public interface EventRepository extends JpaRepository<Event, Long> {
-    @Query("SELECT e FROM events e " +
-            "WHERE (LOWER(e.annotation) LIKE LOWER(CONCAT('%', :text, '%')) " +
-            "OR LOWER(e.description) LIKE LOWER(CONCAT('%', :text, '%')) " +
-            "OR LOWER(e.title) LIKE LOWER(CONCAT('%', :text, '%')) OR :text IS NULL) " +
-            "AND (:paid IS NULL OR e.paid = :paid) " +
+    String COMMON_FILTERS = "AND (:paid IS NULL OR e.paid = :paid) " +
             "AND (:categories IS NULL OR e.category.id IN :categories) " +
             "AND ((CAST(:rangeStart as DATE) IS NULL AND CAST(:rangeEnd as DATE) IS NULL AND e.eventDate > :currentTime) " +
             "OR (CAST(:rangeStart as DATE) IS NOT NULL AND e.eventDate >= :rangeStart) " +
@@ -27,10 +30,27 @@ public interface EventRepository extends JpaRepository<Event, Long> {
             "AND (:onlyAvailable IS NULL OR " +
             "     (:onlyAvailable = TRUE AND (e.participantLimit = 0 OR e.participantLimit > e.confirmedRequests)) " +
             "     OR :onlyAvailable = FALSE) " +
-            "AND e.state = :state " +
-            "ORDER BY " +
-            "CASE WHEN :sort = 'EVENT_DATE' THEN e.eventDate END ASC, " +
-            "CASE WHEN :sort = 'VIEWS' THEN e.views END DESC")
+            "AND e.state = :state ";
+
+    String LIKE_FROM = "SELECT e FROM events e " +
+            "WHERE (LOWER(e.annotation) LIKE LOWER(CONCAT('%', :text, '%')) " +
+            "OR LOWER(e.description) LIKE LOWER(CONCAT('%', :text, '%')) " +
+            "OR LOWER(e.title) LIKE LOWER(CONCAT('%', :text, '%')) OR :text IS NULL) ";
+
+    // границы курсора: без курсора (null) условие не ограничивает выборку, порядок задаёт Sort из Pageable
+    String AFTER_CURSOR = "AND (:afterId IS NULL OR (e.eventDate, e.id) > (:afterDate, :afterId)) ";
+
+    String BEFORE_CURSOR = "AND (:beforeId IS NULL OR (e.eventDate, e.id) < (:beforeDate, :beforeId)) ";
+
+    Sort EVENT_DATE_ASC = Sort.by(Sort.Order.asc("eventDate"), Sort.Order.asc("id"));
+
+    Sort EVENT_DATE_DESC = Sort.by(Sort.Order.desc("eventDate"), Sort.Order.desc("id"));
+
+    String FULL_TEXT_FROM = "SELECT e FROM events e JOIN event_search s ON s.eventId = e.id " +
+            "WHERE function('events_text_match', s.searchVector, :text) = true ";
+
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    @Query(LIKE_FROM + COMMON_FILTERS + AFTER_CURSOR)
     List<Event> findCommonEventsByFilters(
             @Param("text") String text,
             @Param("paid") Boolean paid,
@@ -38,17 +58,78 @@ public interface EventRepository extends JpaRepository<Event, Long> {
             @Param("rangeStart") LocalDateTime rangeStart,
             @Param("rangeEnd") LocalDateTime rangeEnd,
             @Param("onlyAvailable") Boolean onlyAvailable,
-            @Param("sort") String sort,
             @Param("state") EventState state,
             @Param("currentTime") LocalDateTime currentTime,
+            @Param("afterDate") LocalDateTime afterDate,
+            @Param("afterId") Long afterId,
             Pageable pageable);
 
-    default List<Event> findCommonEventsByFilters(EventSearchCommon eventSearchCommon) {
-        Pageable pageable = Pageable.unpaged();
-        Integer from = eventSearchCommon.getFrom();
-        Integer size = eventSearchCommon.getSize();
-        if (from != null && size != null) {
-            pageable = Pageable.ofSize(size).withPage(from / size);
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    @Query(FULL_TEXT_FROM + COMMON_FILTERS + AFTER_CURSOR)
+    List<Event> findCommonEventsByFullText(
+            @Param("text") String text,
+            @Param("paid") Boolean paid,
+            @Param("categories") List<Long> categories,
+            @Param("rangeStart") LocalDateTime rangeStart,
+            @Param("rangeEnd") LocalDateTime rangeEnd,
+            @Param("onlyAvailable") Boolean onlyAvailable,
+            @Param("state") EventState state,
+            @Param("currentTime") LocalDateTime currentTime,
+            @Param("afterDate") LocalDateTime afterDate,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    @Query(FULL_TEXT_FROM + COMMON_FILTERS +
+            "ORDER BY function('events_text_rank', s.searchVector, :text) DESC, e.id")
+    List<Event> findCommonEventsByRelevance(
+            @Param("text") String text,
+            @Param("paid") Boolean paid,
+            @Param("categories") List<Long> categories,
+            @Param("rangeStart") LocalDateTime rangeStart,
+            @Param("rangeEnd") LocalDateTime rangeEnd,
+            @Param("onlyAvailable") Boolean onlyAvailable,
+            @Param("state") EventState state,
+            @Param("currentTime") LocalDateTime currentTime,
+            Pageable pageable);
+
+    default List<Event> findCommonEventsByFilters(EventSearchCommon eventSearchCommon, boolean fullText) {
+        boolean textSearch = fullText && eventSearchCommon.getText() != null && !eventSearchCommon.getText().isBlank();
+        boolean byRelevance = textSearch && eventSearchCommon.getSort() == EventSearchOrder.RELEVANCE;
+        Sort sort = byRelevance
+                ? Sort.unsorted()
+                : eventSearchCommon.getSort() == EventSearchOrder.VIEWS
+                ? Sort.by(Sort.Order.desc("views"), Sort.Order.asc("id"))
+                : EVENT_DATE_ASC;
+        EventCursor cursor = eventSearchCommon.getCursor();
+        Pageable pageable = page(eventSearchCommon.getFrom(), eventSearchCommon.getSize(), cursor, sort);
+        LocalDateTime afterDate = cursor != null ? cursor.eventDate() : null;
+        Long afterId = cursor != null ? cursor.id() : null;
+        if (byRelevance) {
+            return findCommonEventsByRelevance(
+                    eventSearchCommon.getText(),
+                    eventSearchCommon.getPaid(),
+                    eventSearchCommon.getCategories(),
+                    eventSearchCommon.getRangeStart(),
+                    eventSearchCommon.getRangeEnd(),
+                    eventSearchCommon.getOnlyAvailable(),
+                    EventState.PUBLISHED,
+                    LocalDateTime.now(),
+                    pageable);
+        }
+        if (textSearch) {
+            return findCommonEventsByFullText(
+                    eventSearchCommon.getText(),
+                    eventSearchCommon.getPaid(),
+                    eventSearchCommon.getCategories(),
+                    eventSearchCommon.getRangeStart(),
+                    eventSearchCommon.getRangeEnd(),
+                    eventSearchCommon.getOnlyAvailable(),
+                    EventState.PUBLISHED,
+                    LocalDateTime.now(),
+                    afterDate,
+                    afterId,
+                    pageable);
         }
         return findCommonEventsByFilters(
                 eventSearchCommon.getText(),
@@ -57,57 +138,120 @@ public interface EventRepository extends JpaRepository<Event, Long> {
                 eventSearchCommon.getRangeStart(),
                 eventSearchCommon.getRangeEnd(),
                 eventSearchCommon.getOnlyAvailable(),
-                eventSearchCommon.getSort().name(),
                 EventState.PUBLISHED,
                 LocalDateTime.now(),
+                afterDate,
+                afterId,
                 pageable);
     }
 
-    @Query("SELECT e FROM events e " +
+    String ADMIN_FILTERS = "SELECT e FROM events e " +
             "WHERE (:users IS NULL OR e.initiator.id IN :users) " +
             "AND (:states IS NULL OR e.state IN :states) " +
             "AND (:categories IS NULL OR e.category.id IN :categories) " +
             "AND (CAST(:rangeStart as DATE) IS NULL OR e.eventDate >= :rangeStart) " +
-            "AND (CAST(:rangeEnd as DATE) IS NULL OR e.eventDate <= :rangeEnd) " +
-            "ORDER BY e.eventDate DESC")
+            "AND (CAST(:rangeEnd as DATE) IS NULL OR e.eventDate <= :rangeEnd) ";
+
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    @Query(ADMIN_FILTERS + BEFORE_CURSOR)
     List<Event> findAdminEventsByFilters(
             @Param("users") List<Long> users,
             @Param("states") List<String> states,
             @Param("categories") List<Long> categories,
             @Param("rangeStart") LocalDateTime rangeStart,
             @Param("rangeEnd") LocalDateTime rangeEnd,
+            @Param("beforeDate") LocalDateTime beforeDate,
+            @Param("beforeId") Long beforeId,
             Pageable pageable);
 
     default List<Event> findAdminEventsByFilters(EventSearchAdmin eventSearchAdmin) {
-        Pageable pageable = Pageable.unpaged();
-        Integer from = eventSearchAdmin.getFrom();
-        Integer size = eventSearchAdmin.getSize();
-        if (from != null && size != null) {
-            pageable = Pageable.ofSize(size).withPage(from / size);
-        }
+        EventCursor cursor = eventSearchAdmin.getCursor();
         return findAdminEventsByFilters(
                 eventSearchAdmin.getUsers(),
                 eventSearchAdmin.getStates(),
                 eventSearchAdmin.getCategories(),
                 eventSearchAdmin.getRangeStart(),
                 eventSearchAdmin.getRangeEnd(),
-                pageable
+                cursor != null ? cursor.eventDate() : null,
+                cursor != null ? cursor.id() : null,
+                page(eventSearchAdmin.getFrom(), eventSearchAdmin.getSize(), cursor, EVENT_DATE_DESC)
         );
     }
 
+    @EntityGraph(attributePaths = {"category", "initiator"})
     @Query("SELECT e FROM events e " +
             "WHERE e.initiator.id = :user " +
-            "ORDER BY e.eventDate DESC")
-    List<Event> findAllByInitiatorId(@Param("user") Long userId, Pageable pageable);
+            BEFORE_CURSOR)
+    List<Event> findAllByInitiatorId(@Param("user") Long userId,
+                                     @Param("beforeDate") LocalDateTime beforeDate,
+                                     @Param("beforeId") Long beforeId,
+                                     Pageable pageable);
+
+    default List<Event> findAllByInitiatorId(Long userId, EventCursor cursor, Integer size) {
+        return findAllByInitiatorId(userId, cursor.eventDate(), cursor.id(), page(null, size, cursor, EVENT_DATE_DESC));
+    }
 
     default List<Event> findAllByInitiatorId(Long userId, Integer from, Integer size) {
+        return findAllByInitiatorId(userId, null, null, page(from, size, null, EVENT_DATE_DESC));
+    }
+
+    /**
+     * Страница по курсору - первые size событий после него, без курсора - страница по смещению from.
+     */
+    private static Pageable page(Integer from, Integer size, EventCursor cursor, Sort sort) {
+        if (cursor != null) {
+            return PageRequest.of(0, size, sort);
+        }
         if (from != null && size != null) {
-            return findAllByInitiatorId(userId, Pageable.ofSize(size).withPage(from / size));
+            return PageRequest.of(from / size, size, sort);
         }
-        return findAllByInitiatorId(userId, Pageable.unpaged());
+        return Pageable.unpaged(sort);
     }
 
     List<Event> findAllByCategoryId(Long categoryId);
 
+    @EntityGraph(attributePaths = {"category", "initiator"})
     List<Event> findAllByIdIn(List<Long> list);
+
+    List<Event> findAllByStateAndIdGreaterThanOrderByIdAsc(EventState state, Long id, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE events SET views = :views WHERE id = :id", nativeQuery = true)
+    void updateViews(@Param("id") Long id, @Param("views") Long views);
+
+    /**
+     * Увеличивает число подтверждённых заявок, только если это не превысит лимит участников.
+     * Возвращает 0, если мест не хватило.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE events SET confirmed_requests = confirmed_requests + :count " +
+            "WHERE id = :id AND (participant_limit = 0 OR confirmed_requests + :count <= participant_limit)", nativeQuery = true)
+    int reserveParticipants(@Param("id") Long id, @Param("count") long count);
+
+    /**
+     * Как reserveParticipants, но только для опубликованного события без модерации и с лимитом -
+     * заявки на такие события допускает RegistrationAdmission. Возвращает 0, если мест не хватило
+     * или событие перестало подходить для допуска.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE events SET confirmed_requests = confirmed_requests + :count " +
+            "WHERE id = :id AND state = 'PUBLISHED' AND request_moderation = false AND participant_limit > 0 " +
+            "AND confirmed_requests + :count <= participant_limit", nativeQuery = true)
+    int reserveAdmittedParticipants(@Param("id") Long id, @Param("count") long count);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE events SET confirmed_requests = confirmed_requests - :count " +
+            "WHERE id = :id AND confirmed_requests >= :count", nativeQuery = true)
+    int releaseParticipants(@Param("id") Long id, @Param("count") long count);
+
+    @Query(value = "SELECT confirmed_requests FROM events WHERE id = :id", nativeQuery = true)
+    long findConfirmedRequests(@Param("id") Long id);
+
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @Query(value = "INSERT INTO event_search (event_id, search_vector) " +
+            "SELECT id, events_search_vector(title, annotation, description) FROM events WHERE id = :id " +
+            "ON CONFLICT (event_id) DO UPDATE SET search_vector = EXCLUDED.search_vector", nativeQuery = true)
+    void refreshSearchVector(@Param("id") Long id);
 }
\ No newline at end of file
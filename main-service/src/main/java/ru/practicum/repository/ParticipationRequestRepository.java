@@ -1,9 +1,16 @@
 package ru.practicum.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.model.dto.participationRequest.ParticipationRequestStatus;
 import ru.practicum.model.entity.ParticipationRequest;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,4 +20,42 @@ public interface ParticipationRequestRepository extends JpaRepository<Participat
     List<ParticipationRequest> findAllByEventIdAndRequesterId(Long eventId, Long userId);
 
     List<ParticipationRequest> findAllByEventId(Long eventId);
+
+    @EntityGraph(attributePaths = {"event", "requester"})
+    List<ParticipationRequest> findAllByEventIdAndIdIn(Long eventId, Collection<Long> ids);
+
+    String RETURNING_CHANGED = "RETURNING id, event_id AS event, requester_id AS requester, created, status";
+
+    /**
+     * Переводит заявки из PENDING в status и возвращает изменённые строки: ответ строится по ним,
+     * без повторной выборки заявок.
+     */
+    @Transactional
+    @Query(value = "UPDATE requests SET status = :status WHERE id IN (:ids) AND status = 'PENDING' " +
+            RETURNING_CHANGED, nativeQuery = true)
+    List<ChangedRequest> updatePendingStatus(@Param("ids") Collection<Long> ids, @Param("status") String status);
+
+    @Transactional
+    @Query(value = "UPDATE requests SET status = 'REJECTED' WHERE event_id = :eventId AND status = 'PENDING' " +
+            RETURNING_CHANGED, nativeQuery = true)
+    List<ChangedRequest> rejectPendingByEventId(@Param("eventId") Long eventId);
+
+    default List<ChangedRequest> updatePendingStatus(Collection<Long> ids, ParticipationRequestStatus status) {
+        return updatePendingStatus(ids, status.name());
+    }
+
+    /**
+     * Заявка, изменённая UPDATE ... RETURNING.
+     */
+    interface ChangedRequest {
+        Long getId();
+
+        Long getEvent();
+
+        Long getRequester();
+
+        LocalDateTime getCreated();
+
+        ParticipationRequestStatus getStatus();
+    }
 }
@@ -6,7 +6,7 @@ import ru.practicum.model.entity.Event;
 import java.util.List;
 
 public interface EventService {
-    List<EventDto> findByUserId(Long userId, Integer from, Integer size);
+    List<EventDto> findByUserId(Long userId, Integer from, Integer size, EventCursor cursor);
 
     EventDto findByIdAndUser(Long userId, Long eventId);
 
@@ -14,7 +14,7 @@ public interface EventService {
 
     List<EventDto> searchAdmin(EventSearchAdmin search);
 
-    EventDto findById(Long eventId);
+    EventDto findById(Long eventId, long hitTicket);
 
     Event findEventById(Long eventId);
 
@@ -0,0 +1,15 @@
+package ru.practicum.service;
+
+import ru.practicum.model.dto.compilation.CompilationDto;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+public interface PinnedCompilationsCache {
+    RenderedPage get(Integer from, Integer size, Supplier<List<CompilationDto>> loader);
+
+    void invalidate();
+
+    record RenderedPage(byte[] body, String etag) {
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.service;
+
+import ru.practicum.model.entity.Event;
+
+/**
+ * Допуск заявок на участие в событиях без модерации по счётчику свободных мест в памяти.
+ */
+public interface RegistrationAdmission {
+    enum Admission {
+        ACQUIRED,
+        SOLD_OUT,
+        // счётчик события не заполнен: место берётся через tryAcquire(Event) после загрузки события
+        NOT_SEEDED
+    }
+
+    boolean isEnabled();
+
+    /**
+     * Берёт место по уже заполненному счётчику события, не обращаясь к базе.
+     */
+    Admission tryAcquire(Long eventId);
+
+    /**
+     * Заполняет счётчик из participantLimit - confirmedRequests, если его ещё нет, и берёт место.
+     */
+    boolean tryAcquire(Event event);
+
+    void release(Long eventId);
+
+    /**
+     * Заполняет счётчик события заново: available свободных мест по данным базы.
+     */
+    void reseed(Long eventId, long available);
+
+    void evict(Long eventId);
+}
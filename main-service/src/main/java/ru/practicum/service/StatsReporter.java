@@ -0,0 +1,18 @@
+package ru.practicum.service;
+
+import ru.practicum.dto.EndpointHitDto;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface StatsReporter {
+    /**
+     * Ставит хит в очередь отправки и возвращает его номер (0, если хит отброшен).
+     */
+    long report(EndpointHitDto hit);
+
+    /**
+     * Future завершается, когда хит с указанным номером отправлен (или отброшен), но не позже
+     * stats.reporter.ack-timeout-ms. Поток вызывающего не блокируется.
+     */
+    CompletableFuture<Void> whenHandled(long ticket);
+}
@@ -0,0 +1,23 @@
+package ru.practicum.service;
+
+import ru.practicum.model.entity.Event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public interface ViewsService {
+    Map<Long, Long> getViews(List<Event> events);
+
+    /**
+     * Загружает просмотры события с даты его публикации в обход кэша, не блокируя вызывающий поток.
+     * Запрос к сервису статистики отправляется после завершения after; одновременные вызовы объединяются
+     * только с загрузкой, отправленной после него. publishedOn ждётся, только если дата публикации
+     * ещё не известна из кэша; null в нём означает, что загружать нечего.
+     * При таймауте загрузки или недоступности сервиса статистики future завершается
+     * последним известным значением из кэша или null, если его нет.
+     */
+    CompletableFuture<Long> getFreshViews(Long eventId, CompletableFuture<LocalDateTime> publishedOn,
+                                          CompletableFuture<Void> after);
+}
@@ -12,6 +12,7 @@ import ru.practicum.model.entity.Category;
 import ru.practicum.repository.CategoryRepository;
 import ru.practicum.repository.EventRepository;
 import ru.practicum.service.CategoryService;
+import ru.practicum.service.PinnedCompilationsCache;
 
 import java.util.List;
 
@@ -21,6 +22,7 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final EventRepository eventRepository;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
 
     @Override
     public List<CategoryDto> getAll(Integer from, Integer size) {
@@ -63,7 +65,9 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         category.setName(newCategoryDto.getName());
-        return CategoryMapper.categoryToDto(categoryRepository.saveAndFlush(category));
+        CategoryDto updated = CategoryMapper.categoryToDto(categoryRepository.saveAndFlush(category));
+        pinnedCompilationsCache.invalidate();
+        return updated;
     }
 
     @Override
@@ -1,9 +1,7 @@
 package ru.practicum.service.impl;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import ru.practicum.exception.ConditionsNotMetException;
 import ru.practicum.exception.NotFoundException;
@@ -16,10 +14,14 @@ import ru.practicum.model.entity.Event;
 import ru.practicum.repository.CompilationRepository;
 import ru.practicum.repository.EventRepository;
 import ru.practicum.service.CompilationService;
+import ru.practicum.service.PinnedCompilationsCache;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -27,27 +29,30 @@ public class CompilationServiceImpl implements CompilationService {
 
     private final CompilationRepository compilationRepository;
     private final EventRepository eventRepository;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
 
     @Override
     public List<CompilationDto> findAll(Boolean pinned, Integer from, Integer size) {
-        Pageable pageable = PageRequest.of(from / size, size);
-        Page<Compilation> compilationsPage;
-
-        if (pinned != null) {
-            compilationsPage = compilationRepository.findByPinned(pinned, pageable);
-        } else {
-            compilationsPage = compilationRepository.findAll(pageable);
+        List<Long> ids = compilationRepository.findIds(pinned, PageRequest.of(from / size, size));
+        if (ids.isEmpty()) {
+            return List.of();
         }
 
-        return compilationsPage.getContent()
+        Map<Long, Compilation> compilations = compilationRepository.findAllWithEventsByIdIn(ids)
                 .stream()
+                .collect(Collectors.toMap(Compilation::getId, Function.identity()));
+
+        return ids.stream()
+                .map(compilations::get)
                 .map(CompilationMapper::toCompilationDto)
                 .toList();
     }
 
     @Override
     public CompilationDto findById(Long compId) {
-        return compilationRepository.findById(compId)
+        return compilationRepository.findAllWithEventsByIdIn(List.of(compId))
+                .stream()
+                .findFirst()
                 .map(CompilationMapper::toCompilationDto)
                 .orElse(null);
     }
@@ -63,10 +68,12 @@ public class CompilationServiceImpl implements CompilationService {
             events = new HashSet<>(eventRepository.findAllByIdIn(compilationDto.getEvents().stream().toList()));
         }
 
-        return CompilationMapper.toCompilationDto(
+        CompilationDto created = CompilationMapper.toCompilationDto(
                 compilationRepository.save(CompilationMapper
                         .newCompilationDtoToCompilation(compilationDto, events))
         );
+        pinnedCompilationsCache.invalidate();
+        return created;
     }
 
     @Override
@@ -94,7 +101,9 @@ public class CompilationServiceImpl implements CompilationService {
             compilation.setPinned(updateCompilationRequest.getPinned());
         }
 
-        return CompilationMapper.toCompilationDto(compilationRepository.save(compilation));
+        CompilationDto updated = CompilationMapper.toCompilationDto(compilationRepository.save(compilation));
+        pinnedCompilationsCache.invalidate();
+        return updated;
     }
 
     @Override
@@ -102,5 +111,6 @@ public class CompilationServiceImpl implements CompilationService {
         compilationRepository.findById(compilationId).orElseThrow(
                 () -> new NotFoundException("Подборка c id=" + compilationId + " не найдена"));
         compilationRepository.deleteById(compilationId);
+        pinnedCompilationsCache.invalidate();
     }
 }
\ No newline at end of file
@@ -2,14 +2,13 @@ package ru.practicum.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.dto.SimpleDateTimeFormatter;
-import ru.practicum.dto.StatsDto;
-import ru.practicum.ewm.client.stats.StatsClient;
 import ru.practicum.exception.ConditionsNotMetException;
 import ru.practicum.exception.DateValidationException;
 import ru.practicum.exception.NotFoundException;
+import ru.practicum.exception.ValidationException;
 import ru.practicum.mapper.EventMapper;
 import ru.practicum.model.dto.event.*;
 import ru.practicum.model.entity.Category;
@@ -18,12 +17,17 @@ import ru.practicum.model.entity.User;
 import ru.practicum.repository.CategoryRepository;
 import ru.practicum.repository.EventRepository;
 import ru.practicum.service.EventService;
+import ru.practicum.service.PinnedCompilationsCache;
+import ru.practicum.service.RegistrationAdmission;
+import ru.practicum.service.StatsReporter;
 import ru.practicum.service.UserService;
+import ru.practicum.service.ViewsService;
 
 import java.time.LocalDateTime;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,12 +37,20 @@ public class EventServiceImpl implements EventService {
     private final EventRepository eventRepository;
     private final CategoryRepository categoryRepository;
     private final UserService userService;
-    private final StatsClient statsClient;
+    private final StatsReporter statsReporter;
+    private final ViewsService viewsService;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
+    private final RegistrationAdmission registrationAdmission;
+
+    @Value("${events.search.text-mode:LIKE}")
+    private EventTextSearchMode textSearchMode;
 
     @Override
-    public List<EventDto> findByUserId(Long userId, Integer from, Integer size) {
-        return eventRepository.findAllByInitiatorId(userId, from, size)
-                .stream()
+    public List<EventDto> findByUserId(Long userId, Integer from, Integer size, EventCursor cursor) {
+        List<Event> events = cursor == null
+                ? eventRepository.findAllByInitiatorId(userId, from, size)
+                : eventRepository.findAllByInitiatorId(userId, cursor, size);
+        return events.stream()
                 .map(EventMapper::toEventDto)
                 .toList();
     }
@@ -62,10 +74,22 @@ public class EventServiceImpl implements EventService {
                 search.getRangeEnd().isBefore(search.getRangeStart())) {
             throw new DateValidationException("Дата начала не должна быть позже даты окончания");
         }
+        if (search.getCursor() != null && search.getSort() != EventSearchOrder.EVENT_DATE) {
+            throw new ValidationException("Курсор поддерживается только для сортировки EVENT_DATE");
+        }
+        if (search.getSort() == EventSearchOrder.RELEVANCE) {
+            if (textSearchMode != EventTextSearchMode.FULL_TEXT) {
+                throw new ValidationException("Сортировка RELEVANCE доступна только при полнотекстовом поиске");
+            }
+            if (search.getText() == null || search.getText().isBlank()) {
+                throw new ValidationException("Для сортировки RELEVANCE нужен непустой параметр text");
+            }
+        }
 
-        List<Event> events = eventRepository.findCommonEventsByFilters(search);
+        List<Event> events = eventRepository.findCommonEventsByFilters(search,
+                textSearchMode == EventTextSearchMode.FULL_TEXT);
 
-        Map<Long, Long> viewsMap = getViewsFromStatsServer(events);
+        Map<Long, Long> viewsMap = viewsService.getViews(events);
 
         return events.stream()
                 .map(event -> {
@@ -85,84 +109,37 @@ public class EventServiceImpl implements EventService {
                 .toList();
     }
 
+    // без транзакции метода: запрос просмотров уходит до того, как поток займёт соединение из пула,
+    // событие читается в транзакции репозитория (связи ManyToOne загружаются сразу)
     @Override
-    @Transactional(readOnly = true)
-    public EventDto findById(Long eventId) {
-        Event event = findEventById(eventId);
+    public EventDto findById(Long eventId, long hitTicket) {
+        // просмотры загружаются параллельно с чтением события из базы; запрос к сервису статистики
+        // уходит после отправки хита этого же запроса, но поток запроса этой отправки не ждёт
+        CompletableFuture<LocalDateTime> publishedOn = new CompletableFuture<>();
+        CompletableFuture<Long> currentViews = viewsService.getFreshViews(eventId, publishedOn,
+                statsReporter.whenHandled(hitTicket));
+
+        Event event;
+        try {
+            event = findEventById(eventId);
+        } catch (RuntimeException e) {
+            publishedOn.complete(null);
+            throw e;
+        }
+        publishedOn.complete(event.getState() == EventState.PUBLISHED ? event.getPublishedOn() : null);
 
         if (event.getState() != EventState.PUBLISHED) {
             throw new NotFoundException("Событие с id=" + eventId + " не найдено");
         }
 
-        Long currentViews = getViewsFromStatsServer(event);
-
         EventDto dto = EventMapper.toEventDto(event);
 
-        dto.setViews(currentViews);
+        Long views = currentViews.join();
+        dto.setViews(views != null ? views : Objects.requireNonNullElse(event.getViews(), 0L));
 
         return dto;
     }
 
-    private Map<Long, Long> getViewsFromStatsServer(List<Event> events) {
-        if (events.isEmpty()) {
-            return Collections.emptyMap();
-        }
-
-        List<String> uris = events.stream()
-                .map(event -> "/events/" + event.getId())
-                .collect(Collectors.toList());
-
-        LocalDateTime earliestEventDate = events.stream()
-                .map(Event::getCreatedOn)
-                .min(LocalDateTime::compareTo)
-                .orElse(LocalDateTime.now());
-
-        try {
-            List<StatsDto> stats = statsClient.getStats(
-                    SimpleDateTimeFormatter.toString(earliestEventDate),
-                    SimpleDateTimeFormatter.toString(LocalDateTime.now()),
-                    uris,
-                    true
-            );
-
-            return stats.stream()
-                    .collect(Collectors.toMap(
-                            stat -> extractEventIdFromUri(stat.getUri()),
-                            StatsDto::getHits
-                    ));
-        } catch (Exception e) {
-            log.warn("Failed to get views from stats server: {}", e.getMessage());
-            return Collections.emptyMap();
-        }
-    }
-
-    private Long extractEventIdFromUri(String uri) {
-        try {
-            String[] parts = uri.split("/");
-            return Long.parseLong(parts[parts.length - 1]);
-        } catch (Exception e) {
-            log.warn("Failed to extract event ID from URI: {}", uri);
-            return -1L;
-        }
-    }
-
-    private Long getViewsFromStatsServer(Event event) {
-        try {
-            Thread.sleep(200);
-
-            List<StatsDto> stats = statsClient.getStats(
-                    SimpleDateTimeFormatter.toString(event.getCreatedOn()),
-                    SimpleDateTimeFormatter.toString(LocalDateTime.now()),
-                    List.of("/events/" + event.getId()),
-                    true
-            );
-            return stats.isEmpty() ? 0L : stats.getFirst().getHits();
-        } catch (Exception e) {
-            log.warn("Failed to get views from stats server: {}", e.getMessage());
-            return 0L;
-        }
-    }
-
     @Override
     @Transactional
     public Event findEventById(Long eventId) {
@@ -171,6 +148,7 @@ public class EventServiceImpl implements EventService {
     }
 
     @Override
+    @Transactional
     public EventDto create(Long userId, EventDto newEventDto) {
         User initiator = userService.findUserById(userId);
         Category category = categoryRepository.findById(newEventDto.getCategory())
@@ -180,10 +158,12 @@ public class EventServiceImpl implements EventService {
         }
         Event e = EventMapper.newRequestToEvent(newEventDto, initiator, category);
         Event e1 = eventRepository.save(e);
+        eventRepository.refreshSearchVector(e1.getId());
         return EventMapper.toEventDto(e1);
     }
 
     @Override
+    @Transactional
     public EventDto updateByAdmin(long eventId, UpdateAdminEventDto eventDto) {
         Event event = findEventById(eventId);
         LocalDateTime eventDate = eventDto.getEventDate() == null ? event.getEventDate() : eventDto.getEventDate();
@@ -212,10 +192,15 @@ public class EventServiceImpl implements EventService {
         event.setTitle(eventDto.getTitle() == null ? event.getTitle() : eventDto.getTitle());
         event.setLocation(eventDto.getLocation() == null ? event.getLocation() : eventDto.getLocation());
 
-        return EventMapper.toEventDto(eventRepository.save(event));
+        Event saved = eventRepository.save(event);
+        eventRepository.refreshSearchVector(saved.getId());
+        pinnedCompilationsCache.invalidate();
+        registrationAdmission.evict(saved.getId());
+        return EventMapper.toEventDto(saved);
     }
 
     @Override
+    @Transactional
     public EventDto updateByUser(Long userId, Long eventId, UpdateEventDto eventDto) {
         userService.findUserById(userId);
         Event event = eventRepository.findById(eventId).orElseThrow(() -> new NotFoundException("Событие с id=" + eventId + " не найдено"));
@@ -253,6 +238,10 @@ public class EventServiceImpl implements EventService {
         event.setTitle(eventDto.getTitle() == null ? event.getTitle() : eventDto.getTitle());
         event.setLocation(eventDto.getLocation() == null ? event.getLocation() : eventDto.getLocation());
 
-        return EventMapper.toEventDto(eventRepository.save(event));
+        Event saved = eventRepository.save(event);
+        eventRepository.refreshSearchVector(saved.getId());
+        pinnedCompilationsCache.invalidate();
+        registrationAdmission.evict(saved.getId());
+        return EventMapper.toEventDto(saved);
     }
 }
\ No newline at end of file
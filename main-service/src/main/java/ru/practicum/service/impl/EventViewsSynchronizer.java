@@ -0,0 +1,172 @@
+package ru.practicum.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.dto.SimpleDateTimeFormatter;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.ewm.client.stats.StatsClient;
+import ru.practicum.model.dto.event.EventState;
+import ru.practicum.model.entity.Event;
+import ru.practicum.repository.CompilationRepository;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.service.PinnedCompilationsCache;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Периодически переносит число уникальных просмотров из сервиса статистики в events.views,
+ * чтобы сортировка по просмотрам выполнялась в базе. Первый проход обходит все опубликованные события,
+ * следующие - только события, по URI которых были хиты с прошлого прохода.
+ */
+@Slf4j
+@Service
+public class EventViewsSynchronizer {
+    private static final String EVENT_URI_PREFIX = "/events/";
+
+    private final EventRepository eventRepository;
+    private final CompilationRepository compilationRepository;
+    private final StatsClient statsClient;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
+    private final int chunkSize;
+    private final long overlapSeconds;
+
+    private LocalDateTime lastSyncedAt;
+
+    public EventViewsSynchronizer(EventRepository eventRepository,
+                                  CompilationRepository compilationRepository,
+                                  StatsClient statsClient,
+                                  PinnedCompilationsCache pinnedCompilationsCache,
+                                  @Value("${views.sync.chunk-size:100}") int chunkSize,
+                                  @Value("${views.sync.overlap-seconds:60}") long overlapSeconds) {
+        this.eventRepository = eventRepository;
+        this.compilationRepository = compilationRepository;
+        this.statsClient = statsClient;
+        this.pinnedCompilationsCache = pinnedCompilationsCache;
+        this.chunkSize = chunkSize;
+        this.overlapSeconds = overlapSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${views.sync.interval-ms:30000}",
+            initialDelayString = "${views.sync.initial-delay-ms:10000}")
+    public void sync() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            List<Long> updated = lastSyncedAt == null
+                    ? syncAll()
+                    : syncChanged(lastSyncedAt.minusSeconds(overlapSeconds), startedAt);
+            lastSyncedAt = startedAt;
+            if (hasPinned(updated)) {
+                pinnedCompilationsCache.invalidate();
+            }
+            log.debug("Синхронизированы просмотры {} событий", updated.size());
+        } catch (Exception e) {
+            log.warn("Не удалось синхронизировать просмотры событий: {}", e.getMessage());
+        }
+    }
+
+    // кэш закреплённых подборок сбрасывается, только если изменились просмотры их событий
+    private boolean hasPinned(List<Long> eventIds) {
+        for (int i = 0; i < eventIds.size(); i += chunkSize) {
+            if (compilationRepository.existsByPinnedTrueAndEventsIdIn(
+                    eventIds.subList(i, Math.min(i + chunkSize, eventIds.size())))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Long> syncAll() {
+        List<Long> updated = new ArrayList<>();
+        long lastId = 0;
+        List<Event> chunk;
+        do {
+            chunk = eventRepository.findAllByStateAndIdGreaterThanOrderByIdAsc(EventState.PUBLISHED, lastId,
+                    Pageable.ofSize(chunkSize));
+            if (!chunk.isEmpty()) {
+                updated.addAll(syncViews(chunk));
+                lastId = chunk.getLast().getId();
+            }
+        } while (chunk.size() == chunkSize);
+        return updated;
+    }
+
+    private List<Long> syncChanged(LocalDateTime from, LocalDateTime to) {
+        Set<Long> changedIds = new TreeSet<>();
+        // сервер сам отбирает URI событий по префиксу, хиты остальных эндпоинтов не передаются
+        StatsQueryDto query = StatsQueryDto.builder()
+                .start(SimpleDateTimeFormatter.toString(from))
+                .end(SimpleDateTimeFormatter.toString(to))
+                .uriPrefix(EVENT_URI_PREFIX)
+                .unique(false)
+                .build();
+        for (StatsDto stat : statsClient.queryStats(query)) {
+            Long eventId = extractEventId(stat.getUri());
+            if (eventId != null) {
+                changedIds.add(eventId);
+            }
+        }
+
+        List<Long> updated = new ArrayList<>();
+        List<Long> ids = List.copyOf(changedIds);
+        for (int i = 0; i < ids.size(); i += chunkSize) {
+            List<Event> events = eventRepository.findAllByIdIn(ids.subList(i, Math.min(i + chunkSize, ids.size())))
+                    .stream()
+                    .filter(event -> event.getState() == EventState.PUBLISHED)
+                    .toList();
+            if (!events.isEmpty()) {
+                updated.addAll(syncViews(events));
+            }
+        }
+        return updated;
+    }
+
+    private List<Long> syncViews(List<Event> events) {
+        List<String> uris = events.stream()
+                .map(event -> EVENT_URI_PREFIX + event.getId())
+                .toList();
+        LocalDateTime earliestCreatedOn = events.stream()
+                .map(Event::getCreatedOn)
+                .min(LocalDateTime::compareTo)
+                .orElseThrow();
+
+        Map<Long, Long> views = new HashMap<>();
+        for (StatsDto stat : statsClient.getStats(SimpleDateTimeFormatter.toString(earliestCreatedOn),
+                SimpleDateTimeFormatter.toString(LocalDateTime.now()), uris, true)) {
+            Long eventId = extractEventId(stat.getUri());
+            if (eventId != null) {
+                views.merge(eventId, stat.getHits(), Long::sum);
+            }
+        }
+
+        List<Long> updated = new ArrayList<>();
+        for (Event event : events) {
+            Long current = views.getOrDefault(event.getId(), 0L);
+            if (!current.equals(event.getViews())) {
+                eventRepository.updateViews(event.getId(), current);
+                updated.add(event.getId());
+            }
+        }
+        return updated;
+    }
+
+    private Long extractEventId(String uri) {
+        if (uri == null || !uri.startsWith(EVENT_URI_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(uri.substring(EVENT_URI_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package ru.practicum.service.impl;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.exception.ConditionsNotMetException;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.mapper.ParticipationRequestMapper;
@@ -18,11 +19,15 @@ import ru.practicum.repository.EventRepository;
 import ru.practicum.repository.ParticipationRequestRepository;
 import ru.practicum.repository.UserRepository;
 import ru.practicum.service.ParticipationRequestService;
+import ru.practicum.service.PinnedCompilationsCache;
+import ru.practicum.service.RegistrationAdmission;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,6 +36,10 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
     private final ParticipationRequestRepository participationRequestRepository;
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
+    private final RegistrationAdmission registrationAdmission;
+    private final RegistrationBatchWriter registrationBatchWriter;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public List<ParticipationRequestDto> getAllByUser(Long userId) {
@@ -56,8 +65,18 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
     }
 
     @Override
-    @Transactional
     public ParticipationRequestDto create(Long userId, Long eventId) {
+        // счётчик события уже заполнен: место берётся до обращений к базе, а пользователя, дубликат
+        // и состояние события проверяет запись пачкой
+        if (registrationAdmission.isEnabled()) {
+            RegistrationAdmission.Admission admission = registrationAdmission.tryAcquire(eventId);
+            if (admission == RegistrationAdmission.Admission.SOLD_OUT) {
+                throw new ConditionsNotMetException("Достигнут лимит заявок на участие в событии");
+            }
+            if (admission == RegistrationAdmission.Admission.ACQUIRED) {
+                return submit(User.builder().id(userId).build(), Event.builder().id(eventId).build());
+            }
+        }
         User requester = userRepository.findById(userId).orElseThrow(() -> new NotFoundException("Пользователь с id=" + userId + " не найден"));
         Event event = eventRepository.findById(eventId).orElseThrow(() -> new NotFoundException("Событие с id=" + eventId + " не найдено"));
         if (event.getInitiator().getId().equals(userId)) {
@@ -66,6 +85,12 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
         if (event.getState() != EventState.PUBLISHED) {
             throw new ConditionsNotMetException("Нельзя заявить участие в неопубликованном событии");
         }
+        if (registrationAdmission.isEnabled() && !event.getRequestModeration() && event.getParticipantLimit() > 0) {
+            if (!registrationAdmission.tryAcquire(event)) {
+                throw new ConditionsNotMetException("Достигнут лимит заявок на участие в событии");
+            }
+            return submit(requester, event);
+        }
         if (!participationRequestRepository.findAllByEventIdAndRequesterId(eventId, userId).isEmpty()) {
             throw new ConditionsNotMetException("Нельзя отправить дублирующую заявку на участие в событии");
         }
@@ -80,12 +105,13 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
                         ParticipationRequestStatus.PENDING : ParticipationRequestStatus.CONFIRMED)
                 .created(LocalDateTime.now())
                 .build();
-        if (!event.getRequestModeration()) {
-            event.setConfirmedRequests(event.getConfirmedRequests() + 1);
-            eventRepository.save(event);
-        }
 
-        return ParticipationRequestMapper.toParticipationRequestDto(participationRequestRepository.save(participationRequest));
+        return transactionTemplate.execute(status -> {
+            if (!event.getRequestModeration()) {
+                reserve(eventId, 1);
+            }
+            return ParticipationRequestMapper.toParticipationRequestDto(participationRequestRepository.save(participationRequest));
+        });
     }
 
     @Override
@@ -101,8 +127,11 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
         Event event = eventRepository.findById(participationRequest.getEvent().getId())
                 .orElseThrow(() -> new NotFoundException("Событие с id=" + participationRequest.getEvent().getId() + " не найдено"));
 
-        event.setConfirmedRequests(event.getConfirmedRequests() - 1);
-        eventRepository.save(event);
+        if (participationRequest.getStatus() == ParticipationRequestStatus.CONFIRMED) {
+            eventRepository.releaseParticipants(event.getId(), 1);
+            registrationAdmission.release(event.getId());
+            pinnedCompilationsCache.invalidate();
+        }
 
         participationRequest.setStatus(ParticipationRequestStatus.CANCELED);
 
@@ -122,23 +151,19 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
             throw new ConditionsNotMetException("Нельзя обновить статус заявок на участие в событии с отключенной модерацией заявок");
         }
 
-        List<ParticipationRequest> participationRequests = participationRequestRepository.findAllByEventId(eventId);
-        List<Long> requestIds = participationRequests.stream().map(ParticipationRequest::getId).toList();
-        List<Long> absentRequestIds = new ArrayList<>();
-        requestDto.getRequestIds().forEach(id -> {
-            if (!requestIds.contains(id)) {
-                absentRequestIds.add(id);
-            }
-        });
+        List<ParticipationRequest> participationRequestsToUpdate =
+                participationRequestRepository.findAllByEventIdAndIdIn(eventId, requestDto.getRequestIds());
+        Set<Long> foundRequestIds = participationRequestsToUpdate.stream()
+                .map(ParticipationRequest::getId)
+                .collect(Collectors.toSet());
+        List<Long> absentRequestIds = requestDto.getRequestIds().stream()
+                .filter(id -> !foundRequestIds.contains(id))
+                .toList();
 
         if (!absentRequestIds.isEmpty()) {
             throw new NotFoundException("Заявки на участие с id=" + absentRequestIds + " не найдены");
         }
 
-        List<ParticipationRequest> participationRequestsToUpdate = participationRequests.stream()
-                .filter(participationRequest -> requestDto.getRequestIds().contains(participationRequest.getId()))
-                .toList();
-
         List<Long> notPendingRequests = participationRequestsToUpdate.stream()
                 .filter(participationRequest -> participationRequest.getStatus() != ParticipationRequestStatus.PENDING)
                 .map(ParticipationRequest::getId)
@@ -148,45 +173,64 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
             throw new ConditionsNotMetException("Заявки на участие в событии с id=" + eventId + " не находятся в состоянии ожидания подтверждения");
         }
 
+        List<ParticipationRequestRepository.ChangedRequest> confirmed = List.of();
+        List<ParticipationRequestRepository.ChangedRequest> rejected = new ArrayList<>();
         if (requestDto.getStatus() == ParticipationRequestStatus.CONFIRMED) {
-            if (event.getConfirmedRequests() + requestDto.getRequestIds().size() > event.getParticipantLimit()) {
+            int reserved = participationRequestsToUpdate.size();
+            if (eventRepository.reserveParticipants(eventId, reserved) == 0) {
                 throw new ConditionsNotMetException("Нельзя подтвердить заявки на участие в событии, так как превышен лимит заявок");
             }
+            pinnedCompilationsCache.invalidate();
+            confirmed = participationRequestRepository.updatePendingStatus(foundRequestIds, ParticipationRequestStatus.CONFIRMED);
+            // заявка могла перестать ждать подтверждения после проверки выше - её место возвращается
+            if (confirmed.size() < reserved) {
+                eventRepository.releaseParticipants(eventId, reserved - confirmed.size());
+            }
 
-            participationRequestsToUpdate.forEach(participationRequest -> participationRequest.setStatus(ParticipationRequestStatus.CONFIRMED));
-            participationRequestRepository.saveAll(participationRequests);
-            event.setConfirmedRequests(event.getConfirmedRequests() + requestDto.getRequestIds().size());
-            eventRepository.save(event);
-
-            if (Objects.equals(event.getConfirmedRequests(), event.getParticipantLimit())) {
-                List<ParticipationRequest> participationRequestsForDeny = participationRequests.stream()
-                        .filter(participationRequest -> !requestDto.getRequestIds().contains(participationRequest.getId()))
-                        .toList();
-
-                participationRequestsForDeny
-                        .forEach(participationRequest -> participationRequest.setStatus(ParticipationRequestStatus.REJECTED));
-
-                participationRequestRepository.saveAll(participationRequestsForDeny);
+            if (eventRepository.findConfirmedRequests(eventId) == event.getParticipantLimit()) {
+                rejected.addAll(participationRequestRepository.rejectPendingByEventId(eventId));
             }
         } else if (requestDto.getStatus() == ParticipationRequestStatus.REJECTED) {
-            participationRequestsToUpdate.forEach(participationRequest -> participationRequest.setStatus(ParticipationRequestStatus.REJECTED));
-            participationRequestRepository.saveAll(participationRequests);
-            event.setConfirmedRequests(event.getConfirmedRequests() - requestDto.getRequestIds().size());
-            eventRepository.save(event);
+            rejected.addAll(participationRequestRepository.updatePendingStatus(foundRequestIds,
+                    ParticipationRequestStatus.REJECTED));
         }
 
-        participationRequests = participationRequestRepository.findAllByEventId(eventId);
+        // в ответе заявки, которые изменил этот вызов, в том числе отклонённые при исчерпании лимита
         return EventRequestStatusUpdateResult.builder()
-                .confirmedRequests(participationRequests
-                        .stream()
-                        .filter(participationRequest -> participationRequest.getStatus() == ParticipationRequestStatus.CONFIRMED)
+                .confirmedRequests(confirmed.stream()
                         .map(ParticipationRequestMapper::toParticipationRequestDto)
                         .collect(Collectors.toSet()))
-                .rejectedRequests(participationRequests
-                        .stream()
-                        .filter(participationRequest -> participationRequest.getStatus() == ParticipationRequestStatus.REJECTED)
+                .rejectedRequests(rejected.stream()
                         .map(ParticipationRequestMapper::toParticipationRequestDto)
                         .collect(Collectors.toSet()))
                 .build();
     }
+
+    /**
+     * Заявка на событие без модерации, место для которой уже взято из счётчика в памяти: сохраняется
+     * вместе с другими пачкой через RegistrationBatchWriter, который и возвращает место при ошибке записи.
+     */
+    private ParticipationRequestDto submit(User requester, Event event) {
+        ParticipationRequest participationRequest = ParticipationRequest.builder()
+                .requester(requester)
+                .event(event)
+                .status(ParticipationRequestStatus.CONFIRMED)
+                .created(LocalDateTime.now())
+                .build();
+        try {
+            return registrationBatchWriter.submit(participationRequest).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void reserve(Long eventId, long count) {
+        if (eventRepository.reserveParticipants(eventId, count) == 0) {
+            throw new ConditionsNotMetException("Достигнут лимит заявок на участие в событии");
+        }
+        pinnedCompilationsCache.invalidate();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package ru.practicum.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+import ru.practicum.model.dto.compilation.CompilationDto;
+import ru.practicum.service.PinnedCompilationsCache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Готовые JSON-ответы GET /compilations?pinned=true по странице (from, size) вместе с ETag.
+ * Хранится не больше compilations.pinned-cache.max-pages страниц: остальные страницы отдаются без кэширования,
+ * чтобы произвольные from и size из запросов не раздували кэш. Сбрасывается целиком при любом изменении подборок, событий, заявок или категорий;
+ * при активной транзакции - после её коммита, чтобы не закэшировать незакоммиченное состояние.
+ */
+@Service
+public class PinnedCompilationsCacheImpl implements PinnedCompilationsCache {
+    private final ObjectMapper objectMapper;
+    private final Map<PageKey, RenderedPage> pages = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final int maxPages;
+
+    public PinnedCompilationsCacheImpl(ObjectMapper objectMapper,
+                                       @Value("${compilations.pinned-cache.max-pages:64}") int maxPages) {
+        this.objectMapper = objectMapper;
+        this.maxPages = maxPages;
+    }
+
+    @Override
+    public RenderedPage get(Integer from, Integer size, Supplier<List<CompilationDto>> loader) {
+        PageKey key = new PageKey(from, size);
+        RenderedPage cached = pages.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        // загрузка идёт вне блокировок карты: медленный запрос к БД не задерживает другие страницы
+        long loadedGeneration = generation.get();
+        RenderedPage page = render(loader.get());
+        if (pages.size() >= maxPages) {
+            return page;
+        }
+        RenderedPage existing = pages.putIfAbsent(key, page);
+        if (existing != null) {
+            return existing;
+        }
+        if (generation.get() != loadedGeneration) {
+            // подборки изменились во время рендеринга - не оставляем устаревшую страницу
+            pages.remove(key, page);
+        }
+        return page;
+    }
+
+    @Override
+    public void invalidate() {
+        evict();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict();
+                }
+            });
+        }
+    }
+
+    private void evict() {
+        generation.incrementAndGet();
+        pages.clear();
+    }
+
+    private RenderedPage render(List<CompilationDto> compilations) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(compilations);
+            return new RenderedPage(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать подборки", e);
+        }
+    }
+
+    private record PageKey(Integer from, Integer size) {
+    }
+}
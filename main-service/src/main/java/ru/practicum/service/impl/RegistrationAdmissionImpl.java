@@ -0,0 +1,127 @@
+package ru.practicum.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.model.entity.Event;
+import ru.practicum.service.RegistrationAdmission;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Счётчик свободных мест держится в памяти для каждого события, на которое идёт запись, и разбит на полосы:
+ * параллельные заявки берут места из разных ячеек и не конкурируют за одну.
+ * Счётчик заполняется из participantLimit - confirmedRequests при первой заявке; дальше место берётся
+ * до любых обращений к базе, а когда места кончились, заявки отклоняются сразу.
+ * Окончательную проверку лимита выполняет условный UPDATE при записи.
+ */
+@Service
+public class RegistrationAdmissionImpl implements RegistrationAdmission {
+    // соседние полосы разносятся по разным кэш-линиям
+    private static final int PADDING = 8;
+
+    private final boolean enabled;
+    private final int stripes;
+    private final Map<Long, EventPermits> permitsByEvent = new ConcurrentHashMap<>();
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+
+    public RegistrationAdmissionImpl(MeterRegistry meterRegistry,
+                                     @Value("${requests.admission.enabled:false}") boolean enabled,
+                                     @Value("${requests.admission.stripes:0}") int stripes) {
+        this.enabled = enabled;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.acceptedCounter = meterRegistry.counter("requests.admission.accepted");
+        this.rejectedCounter = meterRegistry.counter("requests.admission.rejected");
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Admission tryAcquire(Long eventId) {
+        EventPermits permits = permitsByEvent.get(eventId);
+        if (permits == null) {
+            return Admission.NOT_SEEDED;
+        }
+        if (permits.tryAcquire()) {
+            acceptedCounter.increment();
+            return Admission.ACQUIRED;
+        }
+        rejectedCounter.increment();
+        return Admission.SOLD_OUT;
+    }
+
+    @Override
+    public boolean tryAcquire(Event event) {
+        EventPermits permits = permitsByEvent.computeIfAbsent(event.getId(),
+                id -> new EventPermits(stripes, event.getParticipantLimit() - event.getConfirmedRequests()));
+        if (permits.tryAcquire()) {
+            acceptedCounter.increment();
+            return true;
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    @Override
+    public void release(Long eventId) {
+        EventPermits permits = permitsByEvent.get(eventId);
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void reseed(Long eventId, long available) {
+        permitsByEvent.put(eventId, new EventPermits(stripes, available));
+    }
+
+    @Override
+    public void evict(Long eventId) {
+        permitsByEvent.remove(eventId);
+    }
+
+    private static final class EventPermits {
+        private final int stripes;
+        private final AtomicLongArray permits;
+
+        private EventPermits(int stripes, long available) {
+            this.stripes = stripes;
+            this.permits = new AtomicLongArray(stripes * PADDING);
+            long share = Math.max(available, 0) / stripes;
+            long rest = Math.max(available, 0) % stripes;
+            for (int i = 0; i < stripes; i++) {
+                permits.set(i * PADDING, share + (i < rest ? 1 : 0));
+            }
+        }
+
+        private boolean tryAcquire() {
+            int home = home();
+            for (int i = 0; i < stripes; i++) {
+                int index = ((home + i) % stripes) * PADDING;
+                long available = permits.get(index);
+                while (available > 0) {
+                    if (permits.compareAndSet(index, available, available - 1)) {
+                        return true;
+                    }
+                    available = permits.get(index);
+                }
+            }
+            return false;
+        }
+
+        private void release() {
+            permits.incrementAndGet(home() * PADDING);
+        }
+
+        private int home() {
+            return (int) (Thread.currentThread().threadId() % stripes);
+        }
+    }
+}
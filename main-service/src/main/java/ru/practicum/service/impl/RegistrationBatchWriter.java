@@ -0,0 +1,351 @@
+package ru.practicum.service.impl;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.exception.ConditionsNotMetException;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.mapper.ParticipationRequestMapper;
+import ru.practicum.model.dto.event.EventState;
+import ru.practicum.model.dto.participationRequest.ParticipationRequestDto;
+import ru.practicum.model.entity.ParticipationRequest;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.service.PinnedCompilationsCache;
+import ru.practicum.service.RegistrationAdmission;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Групповая запись заявок, допущенных {@link RegistrationAdmission}: поток запроса ставит заявку в очередь
+ * и ждёт результата, а фоновый поток сохраняет накопившиеся заявки одной транзакцией —
+ * пакетный INSERT и по одному условному UPDATE confirmed_requests на событие.
+ * Заявка может прийти без проверок в базе, поэтому существование пользователя, дубликат, собственное событие
+ * и состояние события проверяют сами INSERT и UPDATE.
+ * После submit место в счётчике принадлежит писателю: при любой ошибке записи оно возвращается,
+ * кроме расхождения с базой, когда счётчик события заполняется заново.
+ */
+@Slf4j
+@Component
+public class RegistrationBatchWriter {
+    // дубликат, заявка несуществующего пользователя и заявка на собственное событие пропускаются
+    // и не роняют всю пачку
+    private static final String INSERT_REQUESTS = "INSERT INTO requests (event_id, requester_id, created, status) " +
+            "SELECT r.event_id, r.requester_id, r.created, r.status " +
+            "FROM unnest(?::bigint[], ?::bigint[], ?::timestamp[], ?::varchar[]) " +
+            "AS r(event_id, requester_id, created, status) " +
+            "WHERE EXISTS (SELECT 1 FROM users u WHERE u.id = r.requester_id) " +
+            "AND EXISTS (SELECT 1 FROM events e WHERE e.id = r.event_id AND e.initiator_id <> r.requester_id) " +
+            "ON CONFLICT (event_id, requester_id) DO NOTHING RETURNING id, event_id, requester_id";
+    private static final String SELECT_SKIPPED = "SELECT r.event_id, r.requester_id, u.id IS NOT NULL AS user_exists, " +
+            "e.initiator_id = r.requester_id AS own_event " +
+            "FROM unnest(?::bigint[], ?::bigint[]) AS r(event_id, requester_id) " +
+            "LEFT JOIN users u ON u.id = r.requester_id LEFT JOIN events e ON e.id = r.event_id";
+    private static final String SELECT_EVENT_FOR_UPDATE = "SELECT state, request_moderation, participant_limit, " +
+            "confirmed_requests FROM events WHERE id = ? FOR UPDATE";
+    private static final String DUPLICATE_MESSAGE = "Нельзя отправить дублирующую заявку на участие в событии";
+    private static final String LIMIT_MESSAGE = "Достигнут лимит заявок на участие в событии";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EventRepository eventRepository;
+    private final RegistrationAdmission registrationAdmission;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+    private final BlockingQueue<PendingRegistration> queue;
+    private final DistributionSummary batchSizeSummary;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public RegistrationBatchWriter(JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate,
+                                   EventRepository eventRepository,
+                                   RegistrationAdmission registrationAdmission,
+                                   PinnedCompilationsCache pinnedCompilationsCache,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${requests.admission.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${requests.admission.batch-size:500}") int batchSize,
+                                   @Value("${requests.admission.offer-timeout-ms:100}") long offerTimeoutMillis,
+                                   @Value("${requests.admission.shutdown-timeout-ms:5000}") long shutdownTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventRepository = eventRepository;
+        this.registrationAdmission = registrationAdmission;
+        this.pinnedCompilationsCache = pinnedCompilationsCache;
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizeSummary = meterRegistry.summary("requests.admission.batch.size");
+        Gauge.builder("requests.admission.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!registrationAdmission.isEnabled()) {
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform().name("registration-writer").start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        worker.interrupt();
+        worker.join(shutdownTimeoutMillis);
+        List<PendingRegistration> unwritten = new ArrayList<>();
+        queue.drainTo(unwritten);
+        if (!unwritten.isEmpty()) {
+            log.warn("При остановке не записано {} заявок на участие", unwritten.size());
+            IllegalStateException stopped = new IllegalStateException("Запись заявок на участие остановлена");
+            unwritten.forEach(pending -> fail(pending, stopped));
+        }
+    }
+
+    public CompletableFuture<ParticipationRequestDto> submit(ParticipationRequest participationRequest) {
+        PendingRegistration pending = new PendingRegistration(participationRequest, new CompletableFuture<>());
+        boolean queued;
+        try {
+            queued = running && queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        // заявка, попавшая в очередь после остановки потока, забирается обратно
+        if (queued && !running && queue.remove(pending)) {
+            queued = false;
+        }
+        if (!queued) {
+            // очередь переполнена или поток остановлен — заявка записывается на потоке запроса
+            write(List.of(pending));
+        }
+        return pending.result();
+    }
+
+    private void run() {
+        List<PendingRegistration> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRegistration first = queue.take();
+                batch.add(first);
+            } catch (InterruptedException e) {
+                // при остановке дописываем то, что уже в очереди
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingRegistration> batch) {
+        batchSizeSummary.record(batch.size());
+        List<PendingRegistration> accepted = new ArrayList<>(batch.size());
+        Map<Integer, RuntimeException> skipped = new HashMap<>();
+        try {
+            long[] ids = transactionTemplate.execute(status -> {
+                accepted.addAll(reserve(batch));
+                long[] inserted = insert(accepted);
+                releaseSkipped(accepted, inserted);
+                skipped.putAll(explainSkipped(accepted, inserted));
+                pinnedCompilationsCache.invalidate();
+                return inserted;
+            });
+            for (int i = 0; i < accepted.size(); i++) {
+                PendingRegistration pending = accepted.get(i);
+                if (ids[i] == 0) {
+                    fail(pending, skipped.getOrDefault(i, new ConditionsNotMetException(DUPLICATE_MESSAGE)));
+                    continue;
+                }
+                pending.request().setId(ids[i]);
+                pending.result().complete(ParticipationRequestMapper.toParticipationRequestDto(pending.request()));
+            }
+        } catch (Exception e) {
+            log.error("Не удалось записать пачку из {} заявок на участие: {}", batch.size(), e.getMessage());
+            batch.forEach(pending -> fail(pending, e));
+        }
+    }
+
+    private void fail(PendingRegistration pending, Exception e) {
+        // заявки, уже завершённые ошибкой (дубликат, расхождение с базой), повторно не освобождают место
+        if (pending.result().completeExceptionally(e)) {
+            registrationAdmission.release(pending.request().getEvent().getId());
+        }
+    }
+
+    private List<PendingRegistration> reserve(List<PendingRegistration> batch) {
+        // TreeMap задаёт одинаковый порядок блокировки строк событий для параллельных транзакций
+        Map<Long, List<PendingRegistration>> byEvent = new TreeMap<>();
+        Set<List<Long>> requesters = new HashSet<>();
+        for (PendingRegistration pending : batch) {
+            ParticipationRequest request = pending.request();
+            if (!requesters.add(List.of(request.getEvent().getId(), request.getRequester().getId()))) {
+                fail(pending, new ConditionsNotMetException(DUPLICATE_MESSAGE));
+                continue;
+            }
+            byEvent.computeIfAbsent(request.getEvent().getId(), id -> new ArrayList<>()).add(pending);
+        }
+        List<PendingRegistration> accepted = new ArrayList<>(batch.size());
+        byEvent.forEach((eventId, pendings) -> {
+            if (eventRepository.reserveAdmittedParticipants(eventId, pendings.size()) > 0) {
+                accepted.addAll(pendings);
+            } else {
+                accepted.addAll(reserveByDatabase(eventId, pendings));
+            }
+        });
+        return accepted;
+    }
+
+    /**
+     * Условный UPDATE не прошёл: счётчик в памяти разошёлся с базой или событие перестало подходить для допуска.
+     * По заблокированной строке события счётчик заполняется заново, а места резервируются повторно -
+     * столько заявок, сколько их свободно по базе; отказ получают только не поместившиеся.
+     */
+    private List<PendingRegistration> reserveByDatabase(Long eventId, List<PendingRegistration> pendings) {
+        EventPlaces places = jdbcTemplate.query(SELECT_EVENT_FOR_UPDATE, rs -> rs.next()
+                ? new EventPlaces(rs.getString("state"), rs.getBoolean("request_moderation"),
+                rs.getLong("participant_limit"), rs.getLong("confirmed_requests"))
+                : null, eventId);
+        RuntimeException rejection = null;
+        if (places == null) {
+            rejection = new NotFoundException("Событие с id=" + eventId + " не найдено");
+        } else if (!EventState.PUBLISHED.name().equals(places.state())) {
+            rejection = new ConditionsNotMetException("Нельзя заявить участие в неопубликованном событии");
+        } else if (places.requestModeration() || places.participantLimit() == 0) {
+            // заявка должна пройти обычный путь с модерацией или без лимита
+            rejection = new ConditionsNotMetException("Условия участия в событии изменились, повторите заявку");
+        }
+        if (rejection != null) {
+            registrationAdmission.evict(eventId);
+            RuntimeException e = rejection;
+            pendings.forEach(pending -> pending.result().completeExceptionally(e));
+            return List.of();
+        }
+        long available = Math.max(places.participantLimit() - places.confirmedRequests(), 0);
+        int reserved = (int) Math.min(available, pendings.size());
+        if (reserved > 0) {
+            eventRepository.reserveAdmittedParticipants(eventId, reserved);
+        }
+        registrationAdmission.reseed(eventId, available - reserved);
+        log.warn("Счётчик мест события {} разошёлся с базой: свободно {}, в пачке {} заявок",
+                eventId, available, pendings.size());
+        pendings.subList(reserved, pendings.size()).forEach(pending -> pending.result().completeExceptionally(
+                new ConditionsNotMetException(LIMIT_MESSAGE)));
+        return pendings.subList(0, reserved);
+    }
+
+    /**
+     * Возвращает идентификаторы записанных заявок в порядке accepted; 0 - заявка пропущена как дубликат.
+     */
+    private long[] insert(List<PendingRegistration> accepted) {
+        long[] ids = new long[accepted.size()];
+        if (accepted.isEmpty()) {
+            return ids;
+        }
+        Long[] eventIds = new Long[accepted.size()];
+        Long[] requesterIds = new Long[accepted.size()];
+        Timestamp[] created = new Timestamp[accepted.size()];
+        String[] statuses = new String[accepted.size()];
+        Map<List<Long>, Integer> positions = new HashMap<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            ParticipationRequest request = accepted.get(i).request();
+            eventIds[i] = request.getEvent().getId();
+            requesterIds[i] = request.getRequester().getId();
+            created[i] = Timestamp.valueOf(request.getCreated());
+            statuses[i] = request.getStatus().name();
+            positions.put(List.of(eventIds[i], requesterIds[i]), i);
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_REQUESTS);
+            ps.setArray(1, con.createArrayOf("bigint", eventIds));
+            ps.setArray(2, con.createArrayOf("bigint", requesterIds));
+            ps.setArray(3, con.createArrayOf("timestamp", created));
+            ps.setArray(4, con.createArrayOf("varchar", statuses));
+            return ps;
+        }, rs -> {
+            ids[positions.get(List.of(rs.getLong("event_id"), rs.getLong("requester_id")))] = rs.getLong("id");
+        });
+        return ids;
+    }
+
+    // места, занятые под пропущенные дубликаты, возвращаются в той же транзакции
+    private void releaseSkipped(List<PendingRegistration> accepted, long[] ids) {
+        Map<Long, Long> skippedByEvent = new TreeMap<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            if (ids[i] == 0) {
+                skippedByEvent.merge(accepted.get(i).request().getEvent().getId(), 1L, Long::sum);
+            }
+        }
+        skippedByEvent.forEach(eventRepository::releaseParticipants);
+    }
+
+    /**
+     * Причины пропуска заявок, которые не записал INSERT, по их позициям в accepted.
+     */
+    private Map<Integer, RuntimeException> explainSkipped(List<PendingRegistration> accepted, long[] ids) {
+        Map<List<Long>, Integer> positions = new HashMap<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            if (ids[i] == 0) {
+                ParticipationRequest request = accepted.get(i).request();
+                positions.put(List.of(request.getEvent().getId(), request.getRequester().getId()), i);
+            }
+        }
+        Map<Integer, RuntimeException> reasons = new HashMap<>();
+        if (positions.isEmpty()) {
+            return reasons;
+        }
+        Long[] eventIds = positions.keySet().stream().map(key -> key.get(0)).toArray(Long[]::new);
+        Long[] requesterIds = positions.keySet().stream().map(key -> key.get(1)).toArray(Long[]::new);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_SKIPPED);
+            ps.setArray(1, con.createArrayOf("bigint", eventIds));
+            ps.setArray(2, con.createArrayOf("bigint", requesterIds));
+            return ps;
+        }, rs -> {
+            long requesterId = rs.getLong("requester_id");
+            RuntimeException reason;
+            if (!rs.getBoolean("user_exists")) {
+                reason = new NotFoundException("Пользователь с id=" + requesterId + " не найден");
+            } else if (rs.getBoolean("own_event")) {
+                reason = new ConditionsNotMetException("Нельзя заявить участие в собственном событии");
+            } else {
+                reason = new ConditionsNotMetException(DUPLICATE_MESSAGE);
+            }
+            reasons.put(positions.get(List.of(rs.getLong("event_id"), requesterId)), reason);
+        });
+        return reasons;
+    }
+
+    private record EventPlaces(String state, boolean requestModeration, long participantLimit,
+                               long confirmedRequests) {
+    }
+
+    private record PendingRegistration(ParticipationRequest request, CompletableFuture<ParticipationRequestDto> result) {
+    }
+}
@@ -0,0 +1,202 @@
+package ru.practicum.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.ewm.client.stats.StatsClient;
+import ru.practicum.service.StatsReporter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отправка хитов в сервис статистики без ожидания на потоке запроса: хиты копятся в ограниченной
+ * очереди, отдельный поток отправляет их пачками через POST /hits с ограниченным числом повторов.
+ * При переполнении очереди или исчерпании повторов хиты отбрасываются и учитываются в метриках.
+ */
+@Slf4j
+@Service
+public class StatsReporterImpl implements StatsReporter {
+    private final StatsClient statsClient;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final long ackTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final Counter queuedCounter;
+    private final Counter sentCounter;
+    private final Counter droppedCounter;
+    private final Counter retriedCounter;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private long acceptedSequence;
+    private volatile long handledSequence;
+    private volatile boolean running;
+    private Thread worker;
+
+    public StatsReporterImpl(StatsClient statsClient,
+                             MeterRegistry meterRegistry,
+                             @Value("${stats.reporter.queue-capacity:10000}") int queueCapacity,
+                             @Value("${stats.reporter.batch-size:200}") int batchSize,
+                             @Value("${stats.reporter.flush-interval-ms:100}") long flushIntervalMillis,
+                             @Value("${stats.reporter.max-attempts:3}") int maxAttempts,
+                             @Value("${stats.reporter.retry-backoff-ms:200}") long retryBackoffMillis,
+                             @Value("${stats.reporter.ack-timeout-ms:100}") long ackTimeoutMillis,
+                             @Value("${stats.reporter.shutdown-timeout-ms:5000}") long shutdownTimeoutMillis) {
+        this.statsClient = statsClient;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queuedCounter = meterRegistry.counter("stats.reporter.queued");
+        this.sentCounter = meterRegistry.counter("stats.reporter.sent");
+        this.droppedCounter = meterRegistry.counter("stats.reporter.dropped");
+        this.retriedCounter = meterRegistry.counter("stats.reporter.retried");
+        Gauge.builder("stats.reporter.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = Thread.ofPlatform().name("stats-reporter").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(shutdownTimeoutMillis);
+        if (!queue.isEmpty()) {
+            log.warn("При остановке не отправлено {} хитов", queue.size());
+        }
+    }
+
+    @Override
+    public long report(EndpointHitDto hit) {
+        long ticket;
+        // номер выдаётся под монитором очереди, чтобы порядок номеров совпадал с порядком отправки
+        synchronized (queue) {
+            if (!queue.offer(hit)) {
+                ticket = 0;
+            } else {
+                ticket = ++acceptedSequence;
+            }
+        }
+        if (ticket == 0) {
+            droppedCounter.increment();
+            log.warn("Очередь отправки статистики переполнена, хит {} отброшен", hit.getUri());
+        } else {
+            queuedCounter.increment();
+        }
+        return ticket;
+    }
+
+    @Override
+    public CompletableFuture<Void> whenHandled(long ticket) {
+        if (ticket <= handledSequence || !statsClient.isAvailable()) {
+            // сервис статистики недоступен: ждать отправки бессмысленно
+            return CompletableFuture.completedFuture(null);
+        }
+        Waiter waiter = new Waiter(ticket, new CompletableFuture<Void>()
+                .completeOnTimeout(null, ackTimeoutMillis, TimeUnit.MILLISECONDS));
+        waiters.add(waiter);
+        // хит мог быть обработан между проверкой и регистрацией ожидающего
+        if (ticket <= handledSequence) {
+            completeWaiters();
+        }
+        return waiter.future();
+    }
+
+    private void run() {
+        List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                EndpointHitDto first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+            } catch (InterruptedException e) {
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                send(batch);
+                markHandled(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<EndpointHitDto> batch) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                ResponseEntity<Object> response = statsClient.saveAll(batch);
+                if (response.getStatusCode().is2xxSuccessful()) {
+                    sentCounter.increment(batch.size());
+                    return;
+                }
+                if (response.getStatusCode().is4xxClientError()) {
+                    log.error("Сервис статистики отклонил пачку из {} хитов: {}", batch.size(), response.getStatusCode());
+                    break;
+                }
+                log.warn("Сервис статистики ответил {} на пачку хитов, попытка {}", response.getStatusCode(), attempt);
+            } catch (Exception e) {
+                log.warn("Ошибка при отправке статистики, попытка {}: {}", attempt, e.getMessage());
+            }
+            if (attempt == maxAttempts || !backoff(attempt)) {
+                break;
+            }
+            retriedCounter.increment();
+        }
+        droppedCounter.increment(batch.size());
+    }
+
+    private boolean backoff(int attempt) {
+        if (!running) {
+            return false;
+        }
+        try {
+            Thread.sleep(retryBackoffMillis * attempt);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private void markHandled(int count) {
+        handledSequence += count;
+        completeWaiters();
+    }
+
+    private void completeWaiters() {
+        long handled = handledSequence;
+        waiters.removeIf(waiter -> {
+            if (waiter.ticket() <= handled || waiter.future().isDone()) {
+                waiter.future().complete(null);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private record Waiter(long ticket, CompletableFuture<Void> future) {
+    }
+}
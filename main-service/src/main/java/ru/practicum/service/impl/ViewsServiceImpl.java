@@ -0,0 +1,334 @@
+package ru.practicum.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.dto.SimpleDateTimeFormatter;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.ewm.client.stats.StatsClient;
+import ru.practicum.model.entity.Event;
+import ru.practicum.service.ViewsService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Кэш просмотров событий с TTL и ограничением размера: при переполнении вытесняются сначала истёкшие записи,
+ * затем загруженные раньше остальных.
+ * Одновременные загрузки одного события схлопываются в один запрос к сервису статистики,
+ * для страницы событий одним запросом загружаются только отсутствующие в кэше.
+ */
+@Slf4j
+@Service
+public class ViewsServiceImpl implements ViewsService {
+    private static final String EVENT_URI_PREFIX = "/events/";
+
+    private final StatsClient statsClient;
+    private final long ttlNanos;
+    private final long loadTimeoutMillis;
+    private final int maxSize;
+    private final Map<Long, CachedViews> cache = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final Map<Long, Load> inFlight = new ConcurrentHashMap<>();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter degradedCounter;
+    private final Timer loadTimer;
+
+    public ViewsServiceImpl(StatsClient statsClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${views.cache.ttl-ms:5000}") long ttlMillis,
+                            @Value("${views.cache.max-size:10000}") int maxSize,
+                            @Value("${views.cache.load-timeout-ms:2000}") long loadTimeoutMillis) {
+        this.statsClient = statsClient;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.loadTimeoutMillis = loadTimeoutMillis;
+        this.maxSize = maxSize;
+        this.hitCounter = meterRegistry.counter("views.cache.hits");
+        this.missCounter = meterRegistry.counter("views.cache.misses");
+        this.degradedCounter = meterRegistry.counter("views.cache.degraded");
+        this.loadTimer = meterRegistry.timer("views.cache.load");
+    }
+
+    @Override
+    public Map<Long, Long> getViews(List<Event> events) {
+        Map<Long, Long> views = new HashMap<>();
+        List<Event> missing = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Event event : events) {
+            CachedViews cached = cache.get(event.getId());
+            if (isFresh(cached, now)) {
+                hitCounter.increment();
+                views.put(event.getId(), cached.views());
+            } else {
+                missCounter.increment();
+                missing.add(event);
+            }
+        }
+        if (!missing.isEmpty()) {
+            views.putAll(loadShared(missing));
+        }
+        return views;
+    }
+
+    @Override
+    public CompletableFuture<Long> getFreshViews(Long eventId, CompletableFuture<LocalDateTime> publishedOn,
+                                                 CompletableFuture<Void> after) {
+        CachedViews cached = cache.get(eventId);
+        // загрузка идёт в обход кэша, промахом считается только отсутствие свежего значения
+        if (!isFresh(cached, System.nanoTime())) {
+            missCounter.increment();
+        }
+        // дата публикации не меняется: для события из кэша запрос не ждёт чтения события из базы
+        CompletableFuture<LocalDateTime> from = cached != null && cached.publishedOn() != null
+                ? CompletableFuture.completedFuture(cached.publishedOn())
+                : publishedOn;
+        return after.thenCombine(from, (ignored, date) -> date)
+                .thenCompose(date -> date == null
+                        ? CompletableFuture.<Long>completedFuture(null)
+                        : joinOrLoad(eventId, date, System.nanoTime()))
+                .orTimeout(loadTimeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    log.warn("Failed to get views from stats server: {}", e.getMessage());
+                    return staleViews(eventId);
+                });
+    }
+
+    /**
+     * Присоединяется к загрузке события, запрос которой ушёл не раньше handledAt - момента, когда хит вызывающего
+     * запроса уже был обработан, - иначе начинает новую. Загрузка, начатая раньше, могла этот хит не увидеть.
+     */
+    private CompletableFuture<Long> joinOrLoad(Long eventId, LocalDateTime publishedOn, long handledAt) {
+        while (true) {
+            Load running = inFlight.get(eventId);
+            if (running != null && running.startedAt() - handledAt >= 0) {
+                return running.future();
+            }
+            Load load = new Load(System.nanoTime(), new CompletableFuture<>());
+            boolean registered = running == null
+                    ? inFlight.putIfAbsent(eventId, load) == null
+                    : inFlight.replace(eventId, running, load);
+            if (registered) {
+                load(eventId, publishedOn, load);
+                return load.future();
+            }
+        }
+    }
+
+    private void load(Long eventId, LocalDateTime publishedOn, Load load) {
+        statsClient.getStatsAsync(
+                        SimpleDateTimeFormatter.toString(publishedOn),
+                        SimpleDateTimeFormatter.toString(LocalDateTime.now()),
+                        List.of(EVENT_URI_PREFIX + eventId),
+                        true)
+                .orTimeout(loadTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((stats, e) -> {
+                    Long views;
+                    if (e == null) {
+                        loadTimer.record(System.nanoTime() - load.startedAt(), TimeUnit.NANOSECONDS);
+                        views = stats.stream().mapToLong(StatsDto::getHits).sum();
+                        put(eventId, new CachedViews(views, load.startedAt(), System.nanoTime() + ttlNanos, publishedOn));
+                    } else {
+                        log.warn("Failed to get views from stats server: {}", e.getMessage());
+                        views = staleViews(eventId);
+                    }
+                    inFlight.remove(eventId, load);
+                    load.future().complete(views);
+                });
+    }
+
+    private boolean isFresh(CachedViews cached, long now) {
+        return cached != null && cached.expiresAt() - now > 0;
+    }
+
+    private void put(Long eventId, CachedViews views) {
+        // загрузка, отправленная раньше, но завершившаяся позже, не перетирает более свежее значение
+        cache.merge(eventId, views, (cached, loaded) -> loaded.startedAt() - cached.startedAt() >= 0 ? loaded : cached);
+        if (cache.size() > maxSize && evicting.compareAndSet(false, true)) {
+            try {
+                evict();
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    /**
+     * Освобождает десятую часть кэша, чтобы полный обход записей не повторялся на каждой вставке.
+     */
+    private void evict() {
+        long now = System.nanoTime();
+        cache.values().removeIf(cached -> !isFresh(cached, now));
+        int excess = cache.size() - maxSize * 9 / 10;
+        if (excess <= 0) {
+            return;
+        }
+        cache.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().expiresAt() - now))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(cache::remove);
+    }
+
+    private Long staleViews(Long eventId) {
+        CachedViews cached = cache.get(eventId);
+        if (cached == null) {
+            return null;
+        }
+        degradedCounter.increment();
+        return cached.views();
+    }
+
+    /**
+     * Режим деградации при недоступности сервиса статистики: последнее загруженное значение из кэша,
+     * даже устаревшее, а если его нет - значение, сохранённое в событии синхронизацией просмотров.
+     */
+    private Map<Long, Long> lastKnownViews(List<Event> events) {
+        degradedCounter.increment(events.size());
+        Map<Long, Long> views = new HashMap<>();
+        for (Event event : events) {
+            CachedViews cached = cache.get(event.getId());
+            if (cached != null) {
+                views.put(event.getId(), cached.views());
+            } else if (event.getViews() != null) {
+                views.put(event.getId(), event.getViews());
+            }
+        }
+        return views;
+    }
+
+    private long lastKnownViews(Event event) {
+        CachedViews cached = cache.get(event.getId());
+        if (cached != null) {
+            return cached.views();
+        }
+        return Objects.requireNonNullElse(event.getViews(), 0L);
+    }
+
+    private Map<Long, Long> loadShared(List<Event> events) {
+        Map<Long, CompletableFuture<Long>> futures = new HashMap<>();
+        Map<Long, Load> ownedLoads = new HashMap<>();
+        List<Event> owned = new ArrayList<>();
+        for (Event event : events) {
+            if (futures.containsKey(event.getId())) {
+                continue;
+            }
+            Load load = new Load(System.nanoTime(), new CompletableFuture<>());
+            Load running = inFlight.putIfAbsent(event.getId(), load);
+            if (running == null) {
+                owned.add(event);
+                ownedLoads.put(event.getId(), load);
+                futures.put(event.getId(), load.future());
+            } else {
+                futures.put(event.getId(), running.future());
+            }
+        }
+        if (!owned.isEmpty()) {
+            load(owned, ownedLoads);
+        }
+
+        Map<Long, Long> views = new HashMap<>();
+        for (Event event : events) {
+            // загрузка без известного значения и истёкшее ожидание дают null
+            Long loaded = await(futures.get(event.getId()));
+            views.put(event.getId(), loaded != null ? loaded : lastKnownViews(event));
+        }
+        return views;
+    }
+
+    private void load(List<Event> events, Map<Long, Load> loads) {
+        Map<Long, Long> loaded = Collections.emptyMap();
+        try {
+            Map<Long, Long> stats = loadTimer.record(() -> loadFromStatsServer(events));
+            long expiresAt = System.nanoTime() + ttlNanos;
+            loaded = new HashMap<>();
+            for (Event event : events) {
+                long views = stats.getOrDefault(event.getId(), 0L);
+                loaded.put(event.getId(), views);
+                put(event.getId(), new CachedViews(views, loads.get(event.getId()).startedAt(), expiresAt,
+                        publishedOn(event)));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to get views from stats server: {}", e.getMessage());
+            loaded = lastKnownViews(events);
+        } finally {
+            for (Event event : events) {
+                Load load = loads.get(event.getId());
+                inFlight.remove(event.getId(), load);
+                load.future().complete(loaded.get(event.getId()));
+            }
+        }
+    }
+
+    private Map<Long, Long> loadFromStatsServer(List<Event> events) {
+        List<String> uris = events.stream()
+                .map(event -> EVENT_URI_PREFIX + event.getId())
+                .toList();
+
+        // один запрос на страницу: диапазон от самой ранней публикации среди её событий
+        LocalDateTime earliestPublishedOn = events.stream()
+                .map(this::publishedOn)
+                .min(LocalDateTime::compareTo)
+                .orElse(LocalDateTime.now());
+
+        List<StatsDto> stats = statsClient.getStats(
+                SimpleDateTimeFormatter.toString(earliestPublishedOn),
+                SimpleDateTimeFormatter.toString(LocalDateTime.now()),
+                uris,
+                true
+        );
+
+        Map<Long, Long> views = new HashMap<>();
+        for (StatsDto stat : stats) {
+            views.merge(extractEventIdFromUri(stat.getUri()), stat.getHits(), Long::sum);
+        }
+        return views;
+    }
+
+    private Long await(CompletableFuture<Long> future) {
+        try {
+            return future.get(loadTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("Failed to wait for views loading: {}", e.getMessage());
+            degradedCounter.increment();
+            return null;
+        }
+    }
+
+    private Long extractEventIdFromUri(String uri) {
+        try {
+            String[] parts = uri.split("/");
+            return Long.parseLong(parts[parts.length - 1]);
+        } catch (Exception e) {
+            log.warn("Failed to extract event ID from URI: {}", uri);
+            return -1L;
+        }
+    }
+
+    private LocalDateTime publishedOn(Event event) {
+        return Objects.requireNonNullElse(event.getPublishedOn(), event.getCreatedOn());
+    }
+
+    private record CachedViews(long views, long startedAt, long expiresAt, LocalDateTime publishedOn) {
+    }
+
+    /**
+     * Загрузка в процессе; startedAt - момент до отправки её запроса к сервису статистики.
+     */
+    private record Load(long startedAt, CompletableFuture<Long> future) {
+    }
+}
@@ -0,0 +1,80 @@
+CREATE TABLE IF NOT EXISTS users (
+    id    BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email VARCHAR(255),
+    name  VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS categories (
+    id   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS events (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    annotation         VARCHAR(2000) NOT NULL,
+    category_id        BIGINT        NOT NULL REFERENCES categories (id),
+    confirmed_requests BIGINT        NOT NULL DEFAULT 0,
+    created_on         TIMESTAMP     NOT NULL,
+    description        TEXT          NOT NULL,
+    event_date         TIMESTAMP     NOT NULL,
+    initiator_id       BIGINT        NOT NULL REFERENCES users (id),
+    lat                FLOAT8        NOT NULL,
+    lon                FLOAT8        NOT NULL,
+    paid               BOOLEAN       NOT NULL,
+    participant_limit  BIGINT        NOT NULL,
+    published_on       TIMESTAMP,
+    request_moderation BOOLEAN       NOT NULL,
+    state              VARCHAR(255)  NOT NULL,
+    title              VARCHAR(120)  NOT NULL,
+    views              BIGINT
+);
+
+CREATE TABLE IF NOT EXISTS requests (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_id     BIGINT       REFERENCES events (id),
+    requester_id BIGINT       REFERENCES users (id),
+    created      TIMESTAMP    NOT NULL,
+    status       VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS compilations (
+    id     BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title  VARCHAR(255) NOT NULL,
+    pinned BOOLEAN      NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS events_compilations (
+    compilation_id BIGINT NOT NULL REFERENCES compilations (id) ON DELETE CASCADE,
+    event_id       BIGINT NOT NULL REFERENCES events (id),
+    PRIMARY KEY (compilation_id, event_id)
+);
+
+CREATE TABLE IF NOT EXISTS comments (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id  BIGINT NOT NULL REFERENCES users (id),
+    event_id BIGINT NOT NULL REFERENCES events (id),
+    message  VARCHAR(500),
+    created  TIMESTAMP
+);
+
+-- Поисковый вектор события хранится отдельно от events (см. EventSearchDocument)
+CREATE TABLE IF NOT EXISTS event_search (
+    event_id      BIGINT PRIMARY KEY REFERENCES events (id) ON DELETE CASCADE,
+    search_vector TSVECTOR
+);
+
+-- Полнотекстовый поиск событий (events.search.text-mode: FULL_TEXT).
+-- Функции на SQL инлайнятся планировщиком, поэтому условие events_text_match использует GIN-индекс.
+CREATE OR REPLACE FUNCTION events_search_vector(title TEXT, annotation TEXT, description TEXT) RETURNS tsvector AS $$
+    SELECT setweight(to_tsvector('russian', coalesce(title, '')), 'A')
+        || setweight(to_tsvector('russian', coalesce(annotation, '')), 'B')
+        || setweight(to_tsvector('russian', coalesce(description, '')), 'C')
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION events_text_match(search_vector tsvector, search_text TEXT) RETURNS boolean AS $$
+    SELECT search_vector @@ plainto_tsquery('russian', search_text)
+$$ LANGUAGE sql STABLE;
+
+CREATE OR REPLACE FUNCTION events_text_rank(search_vector tsvector, search_text TEXT) RETURNS real AS $$
+    SELECT ts_rank(search_vector, plainto_tsquery('russian', search_text))
+$$ LANGUAGE sql STABLE;
@@ -0,0 +1,23 @@
+-- Выборки событий: публичный поиск, админский поиск, события пользователя, keyset-пагинация
+CREATE INDEX IF NOT EXISTS idx_events_state_views ON events (state, views DESC, id);
+CREATE INDEX IF NOT EXISTS idx_events_state_event_date ON events (state, event_date, id);
+CREATE INDEX IF NOT EXISTS idx_events_initiator_event_date ON events (initiator_id, event_date, id);
+CREATE INDEX IF NOT EXISTS idx_events_event_date ON events (event_date, id);
+CREATE INDEX IF NOT EXISTS idx_events_category ON events (category_id);
+CREATE INDEX IF NOT EXISTS idx_event_search_vector ON event_search USING GIN (search_vector);
+
+-- Одна заявка пользователя на событие; индекс также обслуживает выборки по event_id
+CREATE UNIQUE INDEX IF NOT EXISTS ux_requests_event_requester ON requests (event_id, requester_id);
+CREATE INDEX IF NOT EXISTS idx_requests_event_status ON requests (event_id, status);
+CREATE INDEX IF NOT EXISTS idx_requests_requester ON requests (requester_id);
+
+CREATE INDEX IF NOT EXISTS idx_comments_event ON comments (event_id, id);
+CREATE INDEX IF NOT EXISTS idx_comments_user ON comments (user_id, id);
+
+-- UserRepository.findByEmail сравнивает email точно
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_email ON users (email);
+-- CategoryRepository.findByNameIgnoreCase выполняется как upper(name) = upper(?)
+CREATE UNIQUE INDEX IF NOT EXISTS ux_categories_name ON categories (upper(name));
+
+CREATE INDEX IF NOT EXISTS idx_compilations_pinned ON compilations (pinned, id);
+CREATE INDEX IF NOT EXISTS idx_events_compilations_event ON events_compilations (event_id);
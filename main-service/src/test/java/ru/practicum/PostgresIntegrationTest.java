@@ -0,0 +1,109 @@
+package ru.practicum;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import ru.practicum.exception.ConditionsNotMetException;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Основа интеграционных тестов: миграции main-service используют возможности PostgreSQL (tsvector, plpgsql,
+ * ON CONFLICT, массивы), поэтому тесты идут на настоящей базе в контейнере. Контейнер один на все тестовые
+ * классы; без Docker тесты пропускаются.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        POSTGRES.start();
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    protected long createUser() {
+        String name = UUID.randomUUID().toString();
+        return jdbcTemplate.queryForObject("INSERT INTO users (email, name) VALUES (?, ?) RETURNING id", Long.class,
+                name + "@test.ru", name);
+    }
+
+    protected long createCategory() {
+        return jdbcTemplate.queryForObject("INSERT INTO categories (name) VALUES (?) RETURNING id", Long.class,
+                UUID.randomUUID().toString());
+    }
+
+    protected long createPublishedEvent(long initiatorId, long categoryId, long participantLimit,
+                                        boolean requestModeration) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.queryForObject("INSERT INTO events (annotation, category_id, created_on, description, " +
+                        "event_date, initiator_id, lat, lon, paid, participant_limit, published_on, request_moderation, " +
+                        "state, title, views) VALUES ('Аннотация события для теста', ?, ?, 'Описание события для теста', " +
+                        "?, ?, 55.75, 37.62, false, ?, ?, ?, 'PUBLISHED', 'Событие', 0) RETURNING id", Long.class,
+                categoryId, Timestamp.valueOf(now.minusDays(1)), Timestamp.valueOf(now.plusDays(7)), initiatorId,
+                participantLimit, Timestamp.valueOf(now.minusHours(1)), requestModeration);
+    }
+
+    protected long confirmedRequests(long eventId) {
+        return jdbcTemplate.queryForObject("SELECT confirmed_requests FROM events WHERE id = ?", Long.class, eventId);
+    }
+
+    protected long countRequests(long eventId, String status) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM requests WHERE event_id = ? AND status = ?",
+                Long.class, eventId, status);
+    }
+
+    /**
+     * Запускает задачи одновременно на threads потоках и возвращает результаты выполненных;
+     * задачи, отклонённые с ConditionsNotMetException, в результат не попадают.
+     */
+    protected static <T> List<T> runConcurrently(int threads, List<Callable<T>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> results = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        return task.call();
+                    } catch (ConditionsNotMetException e) {
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            List<T> completed = new ArrayList<>();
+            for (Future<T> result : results) {
+                T value = result.get(1, TimeUnit.MINUTES);
+                if (value != null) {
+                    completed.add(value);
+                }
+            }
+            return completed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
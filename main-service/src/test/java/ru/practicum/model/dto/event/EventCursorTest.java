@@ -0,0 +1,36 @@
+package ru.practicum.model.dto.event;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import ru.practicum.exception.ValidationException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventCursorTest {
+    @Test
+    void firstPageNeedsExplicitValue() {
+        assertThat(EventCursor.decode(null)).isNull();
+        assertThat(EventCursor.decode(EventCursor.FIRST_PAGE)).isEqualTo(new EventCursor(null, null));
+        assertThatThrownBy(() -> EventCursor.decode(" "))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void fullPageCarriesNextCursor() {
+        EventDto last = EventDto.builder().id(7L).eventDate(LocalDateTime.of(2024, 5, 1, 18, 30)).build();
+        EventCursor cursor = EventCursor.decode(EventCursor.FIRST_PAGE);
+
+        ResponseEntity<List<EventDto>> full = EventCursor.page(List.of(last), cursor, 1);
+        ResponseEntity<List<EventDto>> partial = EventCursor.page(List.of(last), cursor, 2);
+        ResponseEntity<List<EventDto>> offset = EventCursor.page(List.of(last), null, 1);
+
+        String next = full.getHeaders().getFirst(EventCursor.NEXT_CURSOR_HEADER);
+        assertThat(EventCursor.decode(next)).isEqualTo(new EventCursor(last.getEventDate(), 7L));
+        assertThat(partial.getHeaders().containsKey(EventCursor.NEXT_CURSOR_HEADER)).isFalse();
+        assertThat(offset.getHeaders().containsKey(EventCursor.NEXT_CURSOR_HEADER)).isFalse();
+    }
+}
@@ -0,0 +1,92 @@
+package ru.practicum.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.mapper.EventMapper;
+import ru.practicum.model.dto.event.EventState;
+import ru.practicum.model.entity.Event;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Выборки событий для списков загружают категорию и инициатора тем же запросом:
+ * число SQL-запросов на страницу не зависит от её размера и числа разных категорий и пользователей.
+ */
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class EventRepositoryStatementCountTest extends PostgresIntegrationTest {
+    private static final int EVENTS = 40;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private String marker;
+    private final List<Long> initiatorIds = new ArrayList<>();
+    private final List<Long> eventIds = new ArrayList<>();
+
+    @BeforeEach
+    void createEvents() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        marker = UUID.randomUUID().toString();
+        initiatorIds.clear();
+        eventIds.clear();
+        // у каждого события свои категория и инициатор - худший случай для N+1
+        for (int i = 0; i < EVENTS; i++) {
+            long initiatorId = createUser();
+            long eventId = createPublishedEvent(initiatorId, createCategory(), 0, false);
+            jdbcTemplate.update("UPDATE events SET annotation = ? WHERE id = ?", "Аннотация " + marker, eventId);
+            initiatorIds.add(initiatorId);
+            eventIds.add(eventId);
+        }
+    }
+
+    @Test
+    void publicSearchUsesOneStatementPerPage() {
+        for (int size : new int[]{1, 10, EVENTS}) {
+            assertSingleStatement(size, () -> eventRepository.findCommonEventsByFilters(marker, null, null,
+                    null, null, null, EventState.PUBLISHED, LocalDateTime.now(), null, null, PageRequest.of(0, size)));
+        }
+    }
+
+    @Test
+    void adminSearchUsesOneStatementPerPage() {
+        for (int size : new int[]{1, 10, EVENTS}) {
+            assertSingleStatement(size, () -> eventRepository.findAdminEventsByFilters(initiatorIds, null, null,
+                    null, null, null, null, PageRequest.of(0, size)));
+        }
+    }
+
+    @Test
+    void findByIdsUsesOneStatement() {
+        assertSingleStatement(EVENTS, () -> eventRepository.findAllByIdIn(eventIds));
+    }
+
+    private void assertSingleStatement(int expectedSize, Supplier<List<Event>> query) {
+        statistics.clear();
+
+        List<Event> events = query.get();
+        // маппер обращается к категории и инициатору так же, как при выдаче списка
+        events.forEach(EventMapper::toEventShortDto);
+
+        assertThat(events).hasSize(expectedSize);
+        assertThat(statistics.getPrepareStatementCount())
+                .as("запросов на страницу из %d событий", expectedSize)
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,116 @@
+package ru.practicum.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.model.dto.event.EventSearchCommon;
+import ru.practicum.model.dto.event.EventSearchOrder;
+import ru.practicum.model.entity.Event;
+import ru.practicum.service.EventService;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Сравнение текстового фильтра GET /events в режимах LIKE и FULL_TEXT на большом наборе событий.
+ * Медианы времени выводятся в лог; проверяется, что для запроса из одного слова оба режима находят одни и те же события.
+ */
+@Slf4j
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EventTextSearchBenchmarkTest extends PostgresIntegrationTest {
+    private static final int EVENTS = 50_000;
+    private static final String KEYWORD = "фестиваль";
+    private static final int WARMUP_RUNS = 5;
+    private static final int MEASURED_RUNS = 20;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private EventService eventService;
+
+    @BeforeAll
+    void createFixture() {
+        long userId = createUser();
+        long categoryId = createCategory();
+        // каждое сотое событие содержит ключевое слово в аннотации, остальные тексты - случайные слова
+        jdbcTemplate.update("INSERT INTO events (annotation, category_id, created_on, description, event_date, " +
+                "initiator_id, lat, lon, paid, participant_limit, published_on, request_moderation, state, title, views) " +
+                "SELECT CASE WHEN g % 100 = 0 THEN 'Городской " + KEYWORD + " под открытым небом' " +
+                "ELSE 'Аннотация ' || md5(g::text) END, ?, now(), repeat(md5(g::text) || ' ', 15), " +
+                "now() + g * INTERVAL '1 minute', ?, 0, 0, false, 0, now(), false, 'PUBLISHED', " +
+                "'Событие ' || md5((g * 7)::text), 0 FROM generate_series(1, ?) g", categoryId, userId, EVENTS);
+        jdbcTemplate.update("INSERT INTO event_search (event_id, search_vector) " +
+                "SELECT id, events_search_vector(title, annotation, description) FROM events " +
+                "ON CONFLICT (event_id) DO UPDATE SET search_vector = EXCLUDED.search_vector");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void fullTextFindsSameEventsAsLike() {
+        EventSearchCommon search = search(0, EVENTS);
+
+        List<Long> like = ids(eventRepository.findCommonEventsByFilters(search, false));
+        List<Long> fullText = ids(eventRepository.findCommonEventsByFilters(search, true));
+
+        assertThat(like).hasSize(EVENTS / 100);
+        assertThat(fullText).containsExactlyElementsOf(like);
+    }
+
+    @Test
+    void compareFirstPageLatency() {
+        EventSearchCommon search = search(0, 10);
+
+        double like = medianMillis(() -> eventRepository.findCommonEventsByFilters(search, false));
+        double fullText = medianMillis(() -> eventRepository.findCommonEventsByFilters(search, true));
+
+        log.info("Поиск '{}' среди {} событий, медиана первой страницы: LIKE {} мс, FULL_TEXT {} мс",
+                KEYWORD, EVENTS, String.format("%.2f", like), String.format("%.2f", fullText));
+    }
+
+    @Test
+    void relevanceSortIsRejectedInLikeMode() {
+        EventSearchCommon search = search(0, 10);
+        search.setSort(EventSearchOrder.RELEVANCE);
+
+        assertThatThrownBy(() -> eventService.searchCommon(search))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("RELEVANCE");
+    }
+
+    private EventSearchCommon search(int from, int size) {
+        return EventSearchCommon.builder()
+                .text(KEYWORD)
+                .sort(EventSearchOrder.EVENT_DATE)
+                .from(from)
+                .size(size)
+                .build();
+    }
+
+    private double medianMillis(Supplier<List<Event>> query) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            query.get();
+        }
+        long[] runs = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long startedAt = System.nanoTime();
+            assertThat(query.get()).isNotEmpty();
+            runs[i] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(runs);
+        return runs[MEASURED_RUNS / 2] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private List<Long> ids(List<Event> events) {
+        return events.stream().map(Event::getId).toList();
+    }
+}
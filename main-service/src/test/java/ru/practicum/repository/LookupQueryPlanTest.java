@@ -0,0 +1,92 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import ru.practicum.PostgresIntegrationTest;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Планы частых выборок на большом наборе данных: ни одна не должна сводиться к Seq Scan.
+ * Запросы повторяют SQL, который Hibernate строит для методов репозиториев из V2__lookup_indexes.sql.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class LookupQueryPlanTest extends PostgresIntegrationTest {
+    private long eventId;
+    private long userId;
+    private String email;
+    private String categoryName;
+
+    @BeforeAll
+    void createFixture() {
+        long categoryId = createCategory();
+        jdbcTemplate.update("INSERT INTO users (email, name) " +
+                "SELECT 'plan-' || g || '@test.ru', 'plan-' || g FROM generate_series(1, 20000) g");
+        jdbcTemplate.update("INSERT INTO categories (name) SELECT 'plan-category-' || g FROM generate_series(1, 2000) g");
+        jdbcTemplate.update("INSERT INTO events (annotation, category_id, created_on, description, event_date, " +
+                "initiator_id, lat, lon, paid, participant_limit, published_on, request_moderation, state, title, views) " +
+                "SELECT 'Аннотация события для плана', ?, now(), 'Описание', now() + g * INTERVAL '1 hour', u.id, " +
+                "0, 0, false, 0, now(), false, 'PUBLISHED', 'Событие', 0 " +
+                "FROM generate_series(1, 2000) g JOIN users u ON u.email = 'plan-' || (g % 200 + 1) || '@test.ru'",
+                categoryId);
+        jdbcTemplate.update("WITH e AS (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM events " +
+                "WHERE annotation = 'Аннотация события для плана'), " +
+                "u AS (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM users WHERE email LIKE 'plan-%') " +
+                "INSERT INTO requests (event_id, requester_id, created, status) " +
+                "SELECT e.id, u.id, now(), CASE WHEN g % 3 = 0 THEN 'CONFIRMED' ELSE 'PENDING' END " +
+                "FROM generate_series(0, 99999) g JOIN e ON e.n = g % 2000 JOIN u ON u.n = g / 5");
+        jdbcTemplate.update("WITH e AS (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM events " +
+                "WHERE annotation = 'Аннотация события для плана'), " +
+                "u AS (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM users WHERE email LIKE 'plan-%') " +
+                "INSERT INTO comments (user_id, event_id, message, created) " +
+                "SELECT u.id, e.id, 'Комментарий', now() " +
+                "FROM generate_series(0, 19999) g JOIN e ON e.n = g % 2000 JOIN u ON u.n = g");
+        jdbcTemplate.execute("ANALYZE");
+
+        eventId = jdbcTemplate.queryForObject("SELECT MIN(event_id) FROM requests", Long.class);
+        userId = jdbcTemplate.queryForObject("SELECT MIN(requester_id) FROM requests WHERE event_id = ?",
+                Long.class, eventId);
+        email = "plan-100@test.ru";
+        categoryName = "PLAN-CATEGORY-100";
+    }
+
+    Stream<Arguments> lookups() {
+        return Stream.of(
+                Arguments.of("ParticipationRequestRepository.findAllByEventIdAndRequesterId", "requests",
+                        "SELECT * FROM requests WHERE event_id = %d AND requester_id = %d"),
+                Arguments.of("ParticipationRequestRepository.findAllByEventId", "requests",
+                        "SELECT * FROM requests WHERE event_id = %d"),
+                Arguments.of("ParticipationRequestRepository.findAllByRequesterId", "requests",
+                        "SELECT * FROM requests WHERE requester_id = %2$d"),
+                Arguments.of("ParticipationRequestRepository.rejectPendingByEventId", "requests",
+                        "SELECT * FROM requests WHERE event_id = %d AND status = 'PENDING'"),
+                Arguments.of("CommentRepository.getCommentsByEventId", "comments",
+                        "SELECT * FROM comments WHERE event_id = %d ORDER BY id LIMIT 10"),
+                Arguments.of("CommentRepository.getCommentsByUserId", "comments",
+                        "SELECT * FROM comments WHERE user_id = %2$d ORDER BY id LIMIT 10"),
+                Arguments.of("EventRepository.findAllByInitiatorId", "events",
+                        "SELECT * FROM events WHERE initiator_id = %2$d ORDER BY event_date DESC, id DESC LIMIT 10"),
+                Arguments.of("UserRepository.findByEmail", "users",
+                        "SELECT * FROM users WHERE email = '%3$s'"),
+                Arguments.of("CategoryRepository.findByNameIgnoreCase", "categories",
+                        "SELECT * FROM categories WHERE upper(name) = upper('%4$s')"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("lookups")
+    void lookupDoesNotScanWholeTable(String repositoryMethod, String table, String query) {
+        String sql = String.format(query, eventId, userId, email, categoryName);
+
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class);
+
+        assertThat(String.join("\n", plan))
+                .as("план %s", repositoryMethod)
+                .doesNotContain("Seq Scan on " + table);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.model.dto.participationRequest.EventRequestStatusUpdateRequest;
+import ru.practicum.model.dto.participationRequest.EventRequestStatusUpdateResult;
+import ru.practicum.model.dto.participationRequest.ParticipationRequestDto;
+import ru.practicum.model.dto.participationRequest.ParticipationRequestStatus;
+import ru.practicum.service.ParticipationRequestService;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Стресс-тест резервирования мест (EventRepository.reserveParticipants): при одновременных заявках
+ * и подтверждениях число подтверждённых участников не превышает лимит и совпадает с заявками CONFIRMED.
+ */
+class ParticipationRequestConcurrencyTest extends PostgresIntegrationTest {
+    private static final int THREADS = 32;
+
+    @Autowired
+    private ParticipationRequestService participationRequestService;
+
+    @Test
+    void concurrentRegistrationsNeverOversubscribeEvent() throws Exception {
+        long limit = 20;
+        long eventId = createPublishedEvent(createUser(), createCategory(), limit, false);
+        List<Callable<ParticipationRequestDto>> registrations = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            long userId = createUser();
+            registrations.add(() -> participationRequestService.create(userId, eventId));
+        }
+
+        long accepted = runConcurrently(THREADS, registrations).size();
+
+        assertThat(accepted).isEqualTo(limit);
+        assertThat(confirmedRequests(eventId)).isEqualTo(limit);
+        assertThat(countRequests(eventId, "CONFIRMED")).isEqualTo(limit);
+    }
+
+    @Test
+    void concurrentConfirmationsNeverOversubscribeEvent() throws Exception {
+        long limit = 20;
+        long initiatorId = createUser();
+        long eventId = createPublishedEvent(initiatorId, createCategory(), limit, true);
+        List<Long> requestIds = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            requestIds.add(participationRequestService.create(createUser(), eventId).getId());
+        }
+        List<Callable<EventRequestStatusUpdateResult>> confirmations = new ArrayList<>();
+        for (int from = 0; from < requestIds.size(); from += 10) {
+            EventRequestStatusUpdateRequest update = EventRequestStatusUpdateRequest.builder()
+                    .requestIds(new HashSet<>(requestIds.subList(from, from + 10)))
+                    .status(ParticipationRequestStatus.CONFIRMED)
+                    .build();
+            confirmations.add(() -> participationRequestService.updateStatus(initiatorId, eventId, update));
+        }
+
+        long accepted = runConcurrently(THREADS, confirmations).size();
+
+        assertThat(accepted).isEqualTo(2);
+        assertThat(confirmedRequests(eventId)).isEqualTo(limit);
+        assertThat(countRequests(eventId, "CONFIRMED")).isEqualTo(limit);
+    }
+}
+
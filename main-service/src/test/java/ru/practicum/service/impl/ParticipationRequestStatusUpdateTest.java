@@ -0,0 +1,63 @@
+package ru.practicum.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.model.dto.participationRequest.EventRequestStatusUpdateRequest;
+import ru.practicum.model.dto.participationRequest.EventRequestStatusUpdateResult;
+import ru.practicum.model.dto.participationRequest.ParticipationRequestDto;
+import ru.practicum.model.dto.participationRequest.ParticipationRequestStatus;
+import ru.practicum.service.ParticipationRequestService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ответ PATCH /users/{userId}/events/{eventId}/requests строится по строкам, которые изменили UPDATE ... RETURNING.
+ */
+class ParticipationRequestStatusUpdateTest extends PostgresIntegrationTest {
+    @Autowired
+    private ParticipationRequestService participationRequestService;
+
+    @Test
+    void responseContainsOnlyRequestsChangedByCall() {
+        long initiatorId = createUser();
+        long eventId = createPublishedEvent(initiatorId, createCategory(), 2, true);
+        List<Long> requestIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            requestIds.add(participationRequestService.create(createUser(), eventId).getId());
+        }
+
+        EventRequestStatusUpdateResult first = participationRequestService.updateStatus(initiatorId, eventId,
+                update(Set.of(requestIds.get(0)), ParticipationRequestStatus.CONFIRMED));
+        assertThat(ids(first.getConfirmedRequests())).containsExactly(requestIds.get(0));
+        assertThat(first.getRejectedRequests()).isEmpty();
+
+        // второе подтверждение исчерпывает лимит: оставшиеся заявки отклоняются тем же вызовом
+        EventRequestStatusUpdateResult second = participationRequestService.updateStatus(initiatorId, eventId,
+                update(Set.of(requestIds.get(1)), ParticipationRequestStatus.CONFIRMED));
+        assertThat(ids(second.getConfirmedRequests())).containsExactly(requestIds.get(1));
+        assertThat(ids(second.getRejectedRequests())).containsExactlyInAnyOrder(requestIds.get(2), requestIds.get(3));
+        assertThat(second.getRejectedRequests())
+                .allSatisfy(request -> {
+                    assertThat(request.getStatus()).isEqualTo(ParticipationRequestStatus.REJECTED);
+                    assertThat(request.getEvent()).isEqualTo(eventId);
+                    assertThat(request.getCreated()).isNotNull();
+                });
+        assertThat(confirmedRequests(eventId)).isEqualTo(2);
+    }
+
+    private EventRequestStatusUpdateRequest update(Set<Long> requestIds, ParticipationRequestStatus status) {
+        return EventRequestStatusUpdateRequest.builder()
+                .requestIds(requestIds)
+                .status(status)
+                .build();
+    }
+
+    private List<Long> ids(Set<ParticipationRequestDto> requests) {
+        return requests.stream().map(ParticipationRequestDto::getId).toList();
+    }
+}
@@ -0,0 +1,144 @@
+package ru.practicum.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import ru.practicum.PostgresIntegrationTest;
+import ru.practicum.exception.ConditionsNotMetException;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.model.dto.participationRequest.ParticipationRequestDto;
+import ru.practicum.service.ParticipationRequestService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Нагрузочный тест режима допуска заявок (RegistrationAdmission + RegistrationBatchWriter):
+ * старт продаж на несколько событий сразу. Печатает пропускную способность принятых заявок
+ * и проверяет, что места не теряются и не выдаются сверх лимита, в том числе при дублирующих заявках
+ * и расхождении счётчика с базой.
+ */
+@Slf4j
+@TestPropertySource(properties = "requests.admission.enabled=true")
+class RegistrationAdmissionLoadTest extends PostgresIntegrationTest {
+    private static final int THREADS = 64;
+
+    @Autowired
+    private ParticipationRequestService participationRequestService;
+
+    @Test
+    void launchAcceptsExactlyTheLimitAndReportsThroughput() throws Exception {
+        long limit = 250;
+        long categoryId = createCategory();
+        long initiatorId = createUser();
+        List<Long> eventIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            eventIds.add(createPublishedEvent(initiatorId, categoryId, limit, false));
+        }
+        List<Callable<ParticipationRequestDto>> registrations = new ArrayList<>();
+        for (int i = 0; i < 4_000; i++) {
+            long userId = createUser();
+            long eventId = eventIds.get(i % eventIds.size());
+            registrations.add(() -> participationRequestService.create(userId, eventId));
+        }
+
+        long started = System.nanoTime();
+        List<ParticipationRequestDto> accepted = runConcurrently(THREADS, registrations);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        log.info("Принято {} заявок из {} за {} с: {} заявок/с", accepted.size(), registrations.size(),
+                String.format("%.2f", seconds), String.format("%.0f", accepted.size() / seconds));
+
+        assertThat(accepted).hasSize((int) limit * eventIds.size());
+        for (long eventId : eventIds) {
+            assertThat(confirmedRequests(eventId)).isEqualTo(limit);
+            assertThat(countRequests(eventId, "CONFIRMED")).isEqualTo(limit);
+        }
+    }
+
+    @Test
+    void duplicateRegistrationsDoNotLeakPlaces() throws Exception {
+        long limit = 100;
+        long eventId = createPublishedEvent(createUser(), createCategory(), limit, false);
+        List<Callable<ParticipationRequestDto>> registrations = new ArrayList<>();
+        for (int i = 0; i < limit; i++) {
+            long userId = createUser();
+            // каждая заявка отправляется трижды одновременно: принята может быть только одна
+            for (int copy = 0; copy < 3; copy++) {
+                registrations.add(() -> participationRequestService.create(userId, eventId));
+            }
+        }
+
+        List<ParticipationRequestDto> accepted = new ArrayList<>(runConcurrently(THREADS, registrations));
+        assertThat(accepted).extracting(ParticipationRequestDto::getRequester).doesNotHaveDuplicates();
+
+        // пока дубликаты не отклонены, они держат места, поэтому часть пользователей могла получить отказ;
+        // после отклонения все места должны вернуться и достаться новым пользователям
+        while (accepted.size() < limit) {
+            accepted.add(participationRequestService.create(createUser(), eventId));
+        }
+        assertThat(confirmedRequests(eventId)).isEqualTo(limit);
+        assertThat(countRequests(eventId, "CONFIRMED")).isEqualTo(limit);
+    }
+
+    @Test
+    void cancelledPlaceIsAdmittedAgain() {
+        long eventId = createPublishedEvent(createUser(), createCategory(), 1, false);
+        long firstUserId = createUser();
+        ParticipationRequestDto first = participationRequestService.create(firstUserId, eventId);
+
+        participationRequestService.cancel(firstUserId, first.getId());
+        participationRequestService.create(createUser(), eventId);
+
+        assertThat(confirmedRequests(eventId)).isEqualTo(1);
+        assertThat(countRequests(eventId, "CONFIRMED")).isEqualTo(1);
+    }
+
+    @Test
+    void seededEventIsCheckedByBatchWriter() {
+        long initiatorId = createUser();
+        long eventId = createPublishedEvent(initiatorId, createCategory(), 5, false);
+        long firstUserId = createUser();
+        // первая заявка заполняет счётчик, следующие берут место без обращений к базе
+        participationRequestService.create(firstUserId, eventId);
+
+        assertThatThrownBy(() -> participationRequestService.create(Long.MAX_VALUE, eventId))
+                .isInstanceOf(NotFoundException.class);
+        assertThatThrownBy(() -> participationRequestService.create(initiatorId, eventId))
+                .isInstanceOf(ConditionsNotMetException.class)
+                .hasMessageContaining("собственном");
+        assertThatThrownBy(() -> participationRequestService.create(firstUserId, eventId))
+                .isInstanceOf(ConditionsNotMetException.class)
+                .hasMessageContaining("дублирующую");
+
+        // отклонённые заявки вернули места
+        for (int i = 0; i < 4; i++) {
+            participationRequestService.create(createUser(), eventId);
+        }
+        assertThat(confirmedRequests(eventId)).isEqualTo(5);
+        assertThat(countRequests(eventId, "CONFIRMED")).isEqualTo(5);
+    }
+
+    @Test
+    void counterAheadOfDatabaseIsReseeded() throws Exception {
+        long limit = 10;
+        long eventId = createPublishedEvent(createUser(), createCategory(), limit, false);
+        participationRequestService.create(createUser(), eventId);
+        // места заняты мимо счётчика: в памяти свободно 9, в базе - 4
+        jdbcTemplate.update("UPDATE events SET confirmed_requests = 6 WHERE id = ?", eventId);
+        List<Callable<ParticipationRequestDto>> registrations = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            long userId = createUser();
+            registrations.add(() -> participationRequestService.create(userId, eventId));
+        }
+
+        assertThat(runConcurrently(THREADS, registrations)).hasSize(4);
+        assertThat(confirmedRequests(eventId)).isEqualTo(limit);
+        assertThat(countRequests(eventId, "CONFIRMED")).isEqualTo(5);
+    }
+}
+
@@ -0,0 +1,138 @@
+package ru.practicum.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.ewm.client.stats.StatsClient;
+import ru.practicum.model.entity.Event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ViewsServiceImplTest {
+    private static final CompletableFuture<LocalDateTime> PUBLISHED_ON =
+            CompletableFuture.completedFuture(LocalDateTime.now().minusDays(1));
+
+    private final StatsClient statsClient = mock(StatsClient.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void cacheSizeStaysBounded() {
+        ViewsServiceImpl viewsService = new ViewsServiceImpl(statsClient, meterRegistry, 60_000, 10, 1_000);
+        when(statsClient.getStats(anyString(), anyString(), anyList(), anyBoolean())).thenReturn(List.of());
+
+        for (long id = 1; id <= 100; id++) {
+            viewsService.getViews(List.of(event(id)));
+        }
+
+        Map<?, ?> cache = (Map<?, ?>) ReflectionTestUtils.getField(viewsService, "cache");
+        assertThat(cache).hasSizeLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void freshViewsCountMissOnlyWithoutFreshCachedValue() {
+        ViewsServiceImpl viewsService = new ViewsServiceImpl(statsClient, meterRegistry, 60_000, 100, 1_000);
+        when(statsClient.getStats(anyString(), anyString(), anyList(), anyBoolean()))
+                .thenReturn(List.of(stats(1, 5)));
+        when(statsClient.getStatsAsync(anyString(), anyString(), anyList(), anyBoolean()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(stats(1, 6))));
+
+        viewsService.getViews(List.of(event(1)));
+        assertThat(viewsService.getFreshViews(1L, PUBLISHED_ON, CompletableFuture.completedFuture(null)).join()).isEqualTo(6);
+        assertThat(meterRegistry.counter("views.cache.misses").count()).isEqualTo(1);
+
+        viewsService.getFreshViews(2L, PUBLISHED_ON, CompletableFuture.completedFuture(null)).join();
+        assertThat(meterRegistry.counter("views.cache.misses").count()).isEqualTo(2);
+    }
+
+    @Test
+    void freshViewsDoNotJoinLoadStartedBeforeOwnHit() {
+        ViewsServiceImpl viewsService = new ViewsServiceImpl(statsClient, meterRegistry, 60_000, 100, 1_000);
+        CompletableFuture<List<StatsDto>> earlierLoad = new CompletableFuture<>();
+        when(statsClient.getStatsAsync(anyString(), anyString(), anyList(), anyBoolean()))
+                .thenReturn(earlierLoad)
+                .thenReturn(CompletableFuture.completedFuture(List.of(stats(1, 7))));
+
+        CompletableFuture<Long> first = viewsService.getFreshViews(1L, PUBLISHED_ON,
+                CompletableFuture.completedFuture(null));
+        CompletableFuture<Void> hitHandled = new CompletableFuture<>();
+        CompletableFuture<Long> second = viewsService.getFreshViews(1L, PUBLISHED_ON, hitHandled);
+        hitHandled.complete(null);
+
+        // первая загрузка ушла до обработки хита второго запроса - второй ждёт свою
+        assertThat(second.join()).isEqualTo(7);
+        earlierLoad.complete(List.of(stats(1, 6)));
+        assertThat(first.join()).isEqualTo(6);
+        verify(statsClient, times(2)).getStatsAsync(anyString(), anyString(), anyList(), anyBoolean());
+    }
+
+    @Test
+    void freshViewsStartFromPublicationDate() {
+        ViewsServiceImpl viewsService = new ViewsServiceImpl(statsClient, meterRegistry, 60_000, 100, 1_000);
+        when(statsClient.getStatsAsync(anyString(), anyString(), anyList(), anyBoolean()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(stats(1, 3))));
+        LocalDateTime publishedOn = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+        assertThat(viewsService.getFreshViews(1L, CompletableFuture.completedFuture(publishedOn),
+                CompletableFuture.completedFuture(null)).join()).isEqualTo(3);
+        verify(statsClient).getStatsAsync(eq("2024-03-01 12:00:00"), anyString(), anyList(), anyBoolean());
+    }
+
+    @Test
+    void waitTimeoutReturnsLastKnownViews() throws Exception {
+        // TTL 0: загруженное значение сразу устаревает, но остаётся в кэше для режима деградации
+        ViewsServiceImpl viewsService = new ViewsServiceImpl(statsClient, meterRegistry, 0, 100, 100);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(statsClient.getStats(anyString(), anyString(), anyList(), anyBoolean()))
+                .thenReturn(List.of(stats(1, 42)))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    release.await();
+                    return List.of(stats(1, 43));
+                });
+        Event event = event(1);
+        assertThat(viewsService.getViews(List.of(event))).containsEntry(1L, 42L);
+
+        CompletableFuture<Map<Long, Long>> slowLoad = CompletableFuture.supplyAsync(
+                () -> viewsService.getViews(List.of(event)));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        try {
+            assertThat(viewsService.getViews(List.of(event))).containsEntry(1L, 42L);
+        } finally {
+            release.countDown();
+        }
+        assertThat(slowLoad.get(5, TimeUnit.SECONDS)).containsEntry(1L, 43L);
+    }
+
+    private Event event(long id) {
+        return Event.builder()
+                .id(id)
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .build();
+    }
+
+    private StatsDto stats(long eventId, long hits) {
+        return StatsDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/" + eventId)
+                .hits(hits)
+                .build();
+    }
+}
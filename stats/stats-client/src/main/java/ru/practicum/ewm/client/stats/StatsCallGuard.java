@@ -0,0 +1,145 @@
+package ru.practicum.ewm.client.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Автоматический выключатель и ограничитель одновременных вызовов сервиса статистики.
+ * После stats.client.circuit-breaker.failure-threshold ошибок подряд автомат размыкается, и вызовы
+ * отклоняются сразу в течение open-duration; затем пропускается half-open-calls пробных вызовов,
+ * успех которых замыкает автомат, а ошибка снова размыкает. Состояние меняют только результаты вызовов,
+ * допущенных после последней смены состояния: ответ на вызов, начатый до размыкания, не замкнёт автомат.
+ * Метрики: stats.client.circuit.state (0 - замкнут, 1 - полуоткрыт, 2 - разомкнут),
+ * stats.client.circuit.transitions{from,to} и stats.client.rejected{reason}.
+ */
+@Slf4j
+public class StatsCallGuard {
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    /**
+     * Разрешение на вызов: поколение автомата (число смен состояния) на момент допуска и признак пробного вызова.
+     */
+    public record Permit(long generation, boolean probe) {
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final Semaphore bulkhead;
+    private final MeterRegistry meterRegistry;
+    private final Counter circuitOpenRejections;
+    private final Counter bulkheadRejections;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int halfOpenInFlight;
+    private long openedAt;
+    private long generation;
+
+    public StatsCallGuard(StatsClientProperties properties, MeterRegistry meterRegistry) {
+        this.failureThreshold = properties.getCircuitBreaker().getFailureThreshold();
+        this.openDurationNanos = properties.getCircuitBreaker().getOpenDuration().toNanos();
+        this.halfOpenCalls = properties.getCircuitBreaker().getHalfOpenCalls();
+        this.bulkhead = new Semaphore(properties.getBulkhead().getMaxConcurrentCalls());
+        this.meterRegistry = meterRegistry;
+        this.circuitOpenRejections = meterRegistry.counter("stats.client.rejected", "reason", "circuit_open");
+        this.bulkheadRejections = meterRegistry.counter("stats.client.rejected", "reason", "bulkhead_full");
+        Gauge.builder("stats.client.circuit.state", this, guard -> guard.getState().ordinal()).register(meterRegistry);
+    }
+
+    /**
+     * Занимает место для вызова; при отказе бросает {@link StatsUnavailableException}.
+     * После вызова обязательно {@link #onSuccess(Permit)} или {@link #onFailure(Permit)} с полученным разрешением.
+     */
+    public Permit acquire() {
+        if (!bulkhead.tryAcquire()) {
+            bulkheadRejections.increment();
+            throw new StatsUnavailableException("Превышен лимит одновременных запросов к сервису статистики");
+        }
+        Permit permit = admit();
+        if (permit == null) {
+            bulkhead.release();
+            circuitOpenRejections.increment();
+            throw new StatsUnavailableException("Сервис статистики временно недоступен");
+        }
+        return permit;
+    }
+
+    public void onSuccess(Permit permit) {
+        synchronized (this) {
+            if (permit.generation() == generation) {
+                consecutiveFailures = 0;
+                if (permit.probe()) {
+                    transition(State.CLOSED);
+                }
+            }
+        }
+        bulkhead.release();
+    }
+
+    public void onFailure(Permit permit) {
+        synchronized (this) {
+            if (permit.generation() == generation) {
+                consecutiveFailures++;
+                if (permit.probe() || consecutiveFailures >= failureThreshold) {
+                    open();
+                }
+            }
+        }
+        bulkhead.release();
+    }
+
+    /**
+     * false, пока автомат разомкнут и время ожидания не истекло.
+     */
+    public synchronized boolean isAvailable() {
+        return state != State.OPEN || System.nanoTime() - openedAt >= openDurationNanos;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * null, если вызов не допущен.
+     */
+    private synchronized Permit admit() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                return null;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= halfOpenCalls) {
+                return null;
+            }
+            halfOpenInFlight++;
+            return new Permit(generation, true);
+        }
+        return new Permit(generation, false);
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        transition(State.OPEN);
+    }
+
+    private void transition(State to) {
+        if (state == to) {
+            return;
+        }
+        meterRegistry.counter("stats.client.circuit.transitions", "from", state.name(), "to", to.name()).increment();
+        log.warn("Автомат вызовов сервиса статистики: {} -> {}", state, to);
+        state = to;
+        generation++;
+        consecutiveFailures = 0;
+        halfOpenInFlight = 0;
+    }
+}
@@ -1,35 +1,204 @@
 package ru.practicum.ewm.client.stats;
 
-import org.apache.hc.client5.http.impl.classic.HttpClients;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriComponentsBuilder;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.StatsDto;
+import ru.practicum.dto.StatsQueryDto;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Component
-public class StatsClient {
+public class StatsClient implements Closeable {
+    private static final ParameterizedTypeReference<List<StatsDto>> STATS_TYPE = new ParameterizedTypeReference<>() {
+    };
+
     protected final RestTemplate rest;
+    private final CloseableHttpClient httpClient;
+    private final CloseableHttpAsyncClient asyncHttpClient;
+    private final ObjectReader statsReader;
+    private final ObjectWriter queryWriter;
+    private final String serverUrl;
+    private final int maxQueryStringUris;
+    private final StatsCallGuard guard;
 
-    public StatsClient(@Value("${stats-service.url}") String serverUrl, RestTemplateBuilder builder) {
+    public StatsClient(@Value("${stats-service.url}") String serverUrl, RestTemplateBuilder builder,
+                       StatsClientProperties properties, MeterRegistry meterRegistry) {
+        this.serverUrl = serverUrl;
+        this.maxQueryStringUris = properties.getMaxQueryStringUris();
+        this.guard = new StatsCallGuard(properties, meterRegistry);
+        this.httpClient = StatsHttpClientFactory.create(properties, meterRegistry);
         this.rest = builder.uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
-                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(HttpClients.createDefault()))
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
                 .build();
+        ObjectMapper mapper = jsonMapper(rest);
+        this.statsReader = mapper.readerFor(new TypeReference<List<StatsDto>>() {
+        });
+        this.queryWriter = mapper.writerFor(StatsQueryDto.class);
+        this.asyncHttpClient = StatsHttpClientFactory.createAsync(properties, meterRegistry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+        asyncHttpClient.close();
+    }
+
+    /**
+     * false, если автомат вызовов разомкнут и запросы к сервису статистики сейчас отклоняются.
+     */
+    public boolean isAvailable() {
+        return guard.isAvailable();
+    }
+
+    /**
+     * Неблокирующий вариант {@link #getStats(String, String, List, Boolean)}: запрос выполняется
+     * на потоках ввода-вывода асинхронного клиента httpclient5, поток вызывающего не ждёт ответа. При ответе 4xx future
+     * завершается пустым списком, при 5xx, сетевой ошибке, таймауте или отказе автомата - исключением.
+     */
+    public CompletableFuture<List<StatsDto>> getStatsAsync(String start, String end, List<String> uris,
+                                                           Boolean unique) {
+        if (uris.size() > maxQueryStringUris) {
+            return queryStatsAsync(query(start, end, uris, unique));
+        }
+        URI uri = UriComponentsBuilder.fromHttpUrl(serverUrl)
+                .path("/stats")
+                .queryParam("start", start)
+                .queryParam("end", end)
+                .queryParam("uris", String.join(",", uris))
+                .queryParam("unique", unique)
+                .encode()
+                .build()
+                .toUri();
+        return sendAsync(SimpleRequestBuilder.get(uri)
+                .addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .build());
+    }
+
+    /**
+     * Неблокирующий вариант {@link #queryStats(StatsQueryDto)}, ответы обрабатываются как в
+     * {@link #getStatsAsync(String, String, List, Boolean)}.
+     */
+    public CompletableFuture<List<StatsDto>> queryStatsAsync(StatsQueryDto query) {
+        byte[] body;
+        try {
+            body = queryWriter.writeValueAsBytes(query);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        URI uri = UriComponentsBuilder.fromHttpUrl(serverUrl)
+                .path("/stats/query")
+                .build()
+                .toUri();
+        return sendAsync(SimpleRequestBuilder.post(uri)
+                .addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .setBody(body, ContentType.APPLICATION_JSON)
+                .build());
+    }
+
+    private CompletableFuture<List<StatsDto>> sendAsync(SimpleHttpRequest request) {
+        StatsCallGuard.Permit permit;
+        try {
+            permit = guard.acquire();
+        } catch (StatsUnavailableException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<SimpleHttpResponse> response = new CompletableFuture<>();
+        try {
+            asyncHttpClient.execute(request, new FutureCallback<>() {
+                @Override
+                public void completed(SimpleHttpResponse result) {
+                    response.complete(result);
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    response.completeExceptionally(e);
+                }
+
+                @Override
+                public void cancelled() {
+                    response.cancel(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            // например, клиент уже остановлен: разрешение освобождается тем же путём, что и при ошибке запроса
+            response.completeExceptionally(e);
+        }
+        return response
+                .whenComplete((result, e) -> {
+                    if (e == null && result.getCode() < 500) {
+                        guard.onSuccess(permit);
+                    } else {
+                        guard.onFailure(permit);
+                    }
+                })
+                .thenApply(this::toStats);
+    }
+
+    private List<StatsDto> toStats(SimpleHttpResponse response) {
+        if (response.getCode() >= 500) {
+            throw new HttpServerErrorException(HttpStatusCode.valueOf(response.getCode()));
+        }
+        if (response.getCode() / 100 != 2) {
+            return Collections.emptyList();
+        }
+        try {
+            return statsReader.readValue(response.getBodyBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Маппер из JSON-конвертера RestTemplate: асинхронные ответы декодируются с теми же настройками, что и синхронные.
+     */
+    private static ObjectMapper jsonMapper(RestTemplate rest) {
+        return rest.getMessageConverters().stream()
+                .filter(MappingJackson2HttpMessageConverter.class::isInstance)
+                .map(converter -> ((MappingJackson2HttpMessageConverter) converter).getObjectMapper())
+                .findFirst()
+                .orElseGet(ObjectMapper::new);
     }
 
     public List<StatsDto> getStats(String start, String end, List<String> uris, Boolean unique) {
+        if (uris.size() > maxQueryStringUris) {
+            return queryStats(query(start, end, uris, unique));
+        }
         String urisParam = String.join(",", uris);
         Map<String, Object> parameters = Map.of(
                 "start", start,
@@ -37,26 +206,85 @@ public class StatsClient {
                 "uris", urisParam,
                 "unique", unique
         );
-        ResponseEntity<Object> response = get("/stats?start={start}&end={end}&uris={uris}&unique={unique}", parameters);
-        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-            ObjectMapper mapper = new ObjectMapper();
-            return mapper.convertValue(response.getBody(),
-                    new TypeReference<List<StatsDto>>() {
-                    });
+        return fetchStats("/stats?start={start}&end={end}&uris={uris}&unique={unique}", parameters);
+    }
+
+    public List<StatsDto> getStats(String start, String end, Boolean unique) {
+        Map<String, Object> parameters = Map.of(
+                "start", start,
+                "end", end,
+                "unique", unique
+        );
+        return fetchStats("/stats?start={start}&end={end}&unique={unique}", parameters);
+    }
+
+    /**
+     * Статистика через POST /stats/query: список URI (или префикс URI) передаётся в теле запроса,
+     * поэтому размер запроса не ограничен длиной URL, а сервер не разбирает тысячи параметров строки запроса.
+     */
+    public List<StatsDto> queryStats(StatsQueryDto query) {
+        return guarded(() -> {
+            try {
+                List<StatsDto> stats = rest.exchange("/stats/query", HttpMethod.POST,
+                        new HttpEntity<>(query, defaultHeaders()), STATS_TYPE).getBody();
+                return stats != null ? stats : Collections.<StatsDto>emptyList();
+            } catch (HttpClientErrorException e) {
+                return Collections.<StatsDto>emptyList();
+            }
+        }, stats -> false);
+    }
+
+    private static StatsQueryDto query(String start, String end, List<String> uris, Boolean unique) {
+        return StatsQueryDto.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .unique(unique)
+                .build();
+    }
+
+    // ответ декодируется конвертером RestTemplate сразу в List<StatsDto>, без промежуточного дерева LinkedHashMap;
+    // 5xx пробрасывается, чтобы вызывающий мог перейти на последние известные данные
+    private List<StatsDto> fetchStats(String path, Map<String, Object> parameters) {
+        return guarded(() -> {
+            try {
+                List<StatsDto> stats = rest.exchange(path, HttpMethod.GET, new HttpEntity<>(defaultHeaders()),
+                        STATS_TYPE, parameters).getBody();
+                return stats != null ? stats : Collections.<StatsDto>emptyList();
+            } catch (HttpClientErrorException e) {
+                return Collections.<StatsDto>emptyList();
+            }
+        }, stats -> false);
+    }
+
+    private <T> T guarded(Supplier<T> call, Predicate<T> failed) {
+        StatsCallGuard.Permit permit = guard.acquire();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            guard.onFailure(permit);
+            throw e;
+        }
+        if (failed.test(result)) {
+            guard.onFailure(permit);
+        } else {
+            guard.onSuccess(permit);
         }
-        return Collections.emptyList();
+        return result;
     }
 
     public ResponseEntity<Object> save(EndpointHitDto endpointHit) {
         return post("/hit", endpointHit);
     }
 
-    private ResponseEntity<Object> get(String path, @Nullable Map<String, Object> parameters) {
-        return makeAndSendRequest(HttpMethod.GET, path, parameters, null);
+    public ResponseEntity<Object> saveAll(List<EndpointHitDto> endpointHits) {
+        return post("/hits", endpointHits);
     }
 
     private <T> ResponseEntity<Object> post(String path, T body) {
-        return makeAndSendRequest(HttpMethod.POST, path, null, body);
+        return guarded(() -> makeAndSendRequest(HttpMethod.POST, path, null, body),
+                response -> response.getStatusCode().is5xxServerError());
     }
 
     private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path,
@@ -0,0 +1,68 @@
+package ru.practicum.ewm.client.stats;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки HTTP-транспорта StatsClient (stats.client.*).
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.client")
+public class StatsClientProperties {
+    /**
+     * Всего соединений в пуле.
+     */
+    private int maxConnections = 50;
+    /**
+     * Соединений к одному хосту; сервис статистики - единственный маршрут клиента.
+     */
+    private int maxConnectionsPerRoute = 50;
+    private Duration connectTimeout = Duration.ofMillis(500);
+    private Duration readTimeout = Duration.ofSeconds(2);
+    /**
+     * Сколько ждать свободного соединения из пула.
+     */
+    private Duration connectionRequestTimeout = Duration.ofMillis(200);
+    /**
+     * Время удержания соединения, если сервер не прислал заголовок Keep-Alive.
+     */
+    private Duration keepAlive = Duration.ofSeconds(30);
+    /**
+     * Соединения, простаивающие дольше, закрываются фоновым потоком клиента.
+     */
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    /**
+     * Простаивавшее дольше соединение проверяется перед повторным использованием.
+     */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    /**
+     * При большем числе URI запрос статистики уходит в POST /stats/query, а не в строку GET /stats.
+     */
+    private int maxQueryStringUris = 50;
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private Bulkhead bulkhead = new Bulkhead();
+
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+        /**
+         * Ошибок подряд, после которых автомат размыкается.
+         */
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(10);
+        /**
+         * Пробных вызовов в полуоткрытом состоянии.
+         */
+        private int halfOpenCalls = 1;
+    }
+
+    @Getter
+    @Setter
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 20;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.ewm.client.stats;
+
+/**
+ * Вызов сервиса статистики отклонён без обращения к нему: разомкнут автомат или исчерпан лимит одновременных вызовов.
+ */
+public class StatsUnavailableException extends RuntimeException {
+    public StatsUnavailableException(String message) {
+        super(message);
+    }
+}
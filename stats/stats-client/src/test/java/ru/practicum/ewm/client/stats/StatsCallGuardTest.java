@@ -0,0 +1,66 @@
+package ru.practicum.ewm.client.stats;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatsCallGuardTest {
+
+    @Test
+    void callAdmittedBeforeOpeningDoesNotCloseHalfOpenCircuit() {
+        StatsCallGuard guard = guard(1, 10);
+        StatsCallGuard.Permit slow = guard.acquire();
+        guard.onFailure(guard.acquire());
+        assertThat(guard.getState()).isEqualTo(StatsCallGuard.State.OPEN);
+
+        StatsCallGuard.Permit probe = guard.acquire();
+        assertThat(guard.getState()).isEqualTo(StatsCallGuard.State.HALF_OPEN);
+        assertThat(probe.probe()).isTrue();
+
+        guard.onSuccess(slow);
+        assertThat(guard.getState()).isEqualTo(StatsCallGuard.State.HALF_OPEN);
+        guard.onSuccess(probe);
+        assertThat(guard.getState()).isEqualTo(StatsCallGuard.State.CLOSED);
+    }
+
+    @Test
+    void failedProbeReopensCircuitAndStaleFailureIsIgnored() {
+        StatsCallGuard guard = guard(1, 10);
+        StatsCallGuard.Permit slow = guard.acquire();
+        guard.onFailure(guard.acquire());
+        StatsCallGuard.Permit probe = guard.acquire();
+
+        guard.onFailure(probe);
+        assertThat(guard.getState()).isEqualTo(StatsCallGuard.State.OPEN);
+
+        guard.onSuccess(guard.acquire());
+        assertThat(guard.getState()).isEqualTo(StatsCallGuard.State.CLOSED);
+        guard.onFailure(slow);
+        assertThat(guard.getState()).isEqualTo(StatsCallGuard.State.CLOSED);
+    }
+
+    @Test
+    void completionReleasesBulkheadPermit() {
+        StatsCallGuard guard = guard(1, 1);
+        StatsCallGuard.Permit permit = guard.acquire();
+        assertThatThrownBy(guard::acquire).isInstanceOf(StatsUnavailableException.class);
+
+        guard.onFailure(permit);
+        guard.onSuccess(guard.acquire());
+        guard.onSuccess(guard.acquire());
+        assertThat(guard.getState()).isEqualTo(StatsCallGuard.State.CLOSED);
+    }
+
+    private StatsCallGuard guard(int failureThreshold, int maxConcurrentCalls) {
+        StatsClientProperties properties = new StatsClientProperties();
+        properties.getCircuitBreaker().setFailureThreshold(failureThreshold);
+        // без ожидания: следующий вызов после размыкания сразу становится пробным
+        properties.getCircuitBreaker().setOpenDuration(Duration.ZERO);
+        properties.getBulkhead().setMaxConcurrentCalls(maxConcurrentCalls);
+        return new StatsCallGuard(properties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.ewm.client.stats;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class StatsClientAsyncTest {
+
+    @Test
+    void failedExecuteReleasesBulkheadPermit() throws Exception {
+        StatsClientProperties properties = new StatsClientProperties();
+        properties.getBulkhead().setMaxConcurrentCalls(2);
+        properties.getCircuitBreaker().setFailureThreshold(100);
+        StatsClient statsClient = new StatsClient("http://localhost:9090", new RestTemplateBuilder(), properties,
+                new SimpleMeterRegistry());
+        // остановленный клиент отклоняет execute, запрос до сервера не доходит
+        statsClient.close();
+
+        for (int i = 0; i < 5; i++) {
+            Throwable failure = catchThrowable(() -> statsClient.getStatsAsync("2024-01-01 00:00:00",
+                    "2024-01-02 00:00:00", List.of("/events/1"), false).join());
+            assertThat(failure).hasRootCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+}
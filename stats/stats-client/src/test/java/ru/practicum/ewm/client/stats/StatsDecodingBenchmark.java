@@ -0,0 +1,81 @@
+package ru.practicum.ewm.client.stats;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.practicum.dto.StatsDto;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор ответа /stats: прежний путь (дерево LinkedHashMap и convertValue новым ObjectMapper на каждый ответ)
+ * против текущего (общий ObjectReader сразу в StatsDto). Аллокации на операцию - gc.alloc.rate.norm.
+ * Запуск: main из IDE или
+ * mvn -pl stats/stats-client test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ru.practicum.ewm.client.stats.StatsDecodingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StatsDecodingBenchmark {
+    private static final TypeReference<List<StatsDto>> STATS_TYPE = new TypeReference<>() {
+    };
+
+    @Param({"10", "100", "1000"})
+    public int entries;
+
+    private ObjectMapper sharedMapper;
+    private ObjectReader statsReader;
+    private byte[] body;
+
+    @Setup
+    public void prepare() throws IOException {
+        sharedMapper = new ObjectMapper();
+        statsReader = sharedMapper.readerFor(STATS_TYPE);
+        List<StatsDto> stats = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            stats.add(new StatsDto("ewm-main-service", "/events/" + i, (long) (entries - i) * 17));
+        }
+        body = sharedMapper.writeValueAsBytes(stats);
+    }
+
+    @Benchmark
+    public List<StatsDto> treeThenConvert() throws IOException {
+        Object tree = sharedMapper.readValue(body, Object.class);
+        return new ObjectMapper().convertValue(tree, STATS_TYPE);
+    }
+
+    @Benchmark
+    public List<StatsDto> sharedReader() throws IOException {
+        return statsReader.readValue(body);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StatsDecodingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Тело запроса POST /stats/query: те же параметры, что у GET /stats, но список URI передаётся в JSON,
+ * а не в строке запроса. Вместо списка можно указать префикс URI.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsQueryDto {
+    String start;
+    String end;
+    List<String> uris;
+    String uriPrefix;
+    Boolean unique;
+    Boolean approximate;
+}
@@ -1,9 +1,11 @@
 package ru.practicum.ewm.stats.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,8 +14,12 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.SimpleDateTimeFormatter;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.ewm.stats.model.HitsSaveResult;
 import ru.practicum.ewm.stats.service.StatsService;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -28,11 +34,22 @@ public class StatsController {
         return new ResponseEntity<>(statsService.hit(endpointHitDto), HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/hits", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<HitsSaveResult> hits(HttpServletRequest request) throws IOException {
+        return new ResponseEntity<>(statsService.hits(request.getInputStream()), HttpStatus.CREATED);
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<Object> getStats(@RequestParam(required = false) @DateTimeFormat(pattern = SimpleDateTimeFormatter.PATTERN) LocalDateTime start,
                                            @RequestParam(required = false) @DateTimeFormat(pattern = SimpleDateTimeFormatter.PATTERN) LocalDateTime end,
                                            @RequestParam(required = false) List<String> uris,
-                                           @RequestParam(defaultValue = "false") Boolean unique) {
-        return ResponseEntity.ok(statsService.getStats(start, end, uris, unique));
+                                           @RequestParam(defaultValue = "false") Boolean unique,
+                                           @RequestParam(defaultValue = "false") Boolean approximate) {
+        return ResponseEntity.ok(statsService.getStats(start, end, uris, unique, approximate));
+    }
+
+    @PostMapping("/stats/query")
+    public ResponseEntity<List<StatsDto>> queryStats(@RequestBody StatsQueryDto query) {
+        return ResponseEntity.ok(statsService.query(query));
     }
 }
@@ -0,0 +1,165 @@
+package ru.practicum.ewm.stats.counter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.ewm.stats.model.EndpointHit;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчики хитов по URI в памяти процесса. Восстанавливаются из таблицы hits после создания всех бинов
+ * (схема уже инициализирована, веб-сервер ещё не принимает запросы), затем пополняются после коммита каждой записи хитов.
+ * Число хитов отвечается из памяти для любого диапазона, границы которого не режут поминутные корзины последних
+ * stats.counter.window-minutes минут истории URI, - в том числе для "с момента публикации до сейчас".
+ * Уникальные IP отвечаются для диапазонов, накрывающих всю историю URI, в пределах общего бюджета stats.counter.max-ips.
+ * Остальные запросы уходят в базу.
+ */
+@Slf4j
+@Component
+public class HitCounterEngine implements SmartInitializingSingleton {
+    private static final String SELECT_HITS = "SELECT a.name AS app, u.name AS uri, host(h.ip) AS ip, h.timestamp " +
+            "FROM hits h JOIN hit_apps a ON a.id = h.app_id JOIN hit_uris u ON u.id = h.uri_id";
+    private static final int REBUILD_FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxUris;
+    private final int maxIpsPerUri;
+    private final long windowMinutes;
+    private final AtomicLong ipBudget;
+    private final Map<String, UriCounter> counters = new ConcurrentHashMap<>();
+    private final Counter servedCounter;
+    private final Counter fallbackCounter;
+
+    private volatile boolean ready;
+    private volatile boolean saturated;
+    private volatile LocalDateTime retainedFrom;
+
+    public HitCounterEngine(JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${stats.counter.enabled:true}") boolean enabled,
+                            @Value("${stats.counter.max-uris:100000}") int maxUris,
+                            @Value("${stats.counter.max-ips-per-uri:100000}") int maxIpsPerUri,
+                            @Value("${stats.counter.max-ips:10000000}") long maxIps,
+                            @Value("${stats.counter.window-minutes:1440}") long windowMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.maxUris = maxUris;
+        this.maxIpsPerUri = maxIpsPerUri;
+        this.windowMinutes = windowMinutes;
+        this.ipBudget = new AtomicLong(maxIps);
+        this.servedCounter = meterRegistry.counter("stats.counter.served");
+        this.fallbackCounter = meterRegistry.counter("stats.counter.fallback");
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // курсор читает hits порциями только внутри транзакции, без неё драйвер загрузил бы таблицу целиком
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT_HITS);
+                statement.setFetchSize(REBUILD_FETCH_SIZE);
+                return statement;
+            }, rs -> {
+                UriCounter counter = counterFor(rs.getString("uri"));
+                if (counter != null) {
+                    counter.record(rs.getString("app"), rs.getString("ip"),
+                            rs.getTimestamp("timestamp").toLocalDateTime());
+                }
+            }));
+            ready = true;
+            log.info("Счётчики хитов восстановлены: uri={}, saturated={}", counters.size(), saturated);
+        } catch (Exception e) {
+            counters.clear();
+            log.error("Не удалось восстановить счётчики хитов, запросы пойдут в базу: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Хиты раньше cutoff удалены из базы: URI, история которых начинается раньше, больше не отвечают из памяти.
+     */
+    public void retainFrom(LocalDateTime cutoff) {
+        retainedFrom = cutoff;
+    }
+
+    public void record(List<EndpointHit> hits) {
+        if (!ready) {
+            return;
+        }
+        for (EndpointHit hit : hits) {
+            UriCounter counter = counterFor(hit.getUri());
+            if (counter != null) {
+                counter.record(hit.getApp(), hit.getIp(), hit.getTimestamp());
+            }
+        }
+    }
+
+    public Optional<List<StatsDto>> findStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                              boolean unique) {
+        if (!ready || uris == null) {
+            return Optional.empty();
+        }
+        List<StatsDto> stats = new ArrayList<>();
+        for (String uri : new LinkedHashSet<>(uris)) {
+            UriCounter counter = counters.get(uri);
+            if (counter == null) {
+                if (saturated) {
+                    fallbackCounter.increment();
+                    return Optional.empty();
+                }
+                continue;
+            }
+            long hits = counter.count(start, end, unique);
+            if (hits < 0 || (retainedFrom != null && counter.startsBefore(retainedFrom))) {
+                fallbackCounter.increment();
+                return Optional.empty();
+            }
+            stats.add(StatsDto.builder()
+                    .app(counter.getApp())
+                    .uri(uri)
+                    .hits(hits)
+                    .build());
+        }
+        stats.sort(Comparator.comparing(StatsDto::getHits).reversed());
+        servedCounter.increment();
+        return Optional.of(stats);
+    }
+
+    private UriCounter counterFor(String uri) {
+        UriCounter counter = counters.get(uri);
+        if (counter != null) {
+            return counter;
+        }
+        if (counters.size() >= maxUris) {
+            saturated = true;
+            return null;
+        }
+        return counters.computeIfAbsent(uri, key -> new UriCounter(maxIpsPerUri, ipBudget, windowMinutes));
+    }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.ewm.stats.counter;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Множество IP без упаковки: IPv4 хранятся как long в открытой адресации, прочие адреса - строками.
+ * IPv6 приводятся к одному написанию через InetAddress, чтобы "2001:db8::1" и "2001:DB8:0:0:0:0:0:1"
+ * считались одним посетителем, как при COUNT(DISTINCT ip) по столбцу inet.
+ */
+class IpSet {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long EMPTY = 0L;
+    // с такими символами строка разбирается как литерал IPv6 без обращения к DNS
+    private static final Pattern IPV6_CHARS = Pattern.compile("[0-9a-fA-F:.]+");
+
+    private long[] slots = new long[INITIAL_CAPACITY];
+    private int ipv4Size;
+    private Set<String> others;
+
+    boolean add(String ip) {
+        long packed = packIpv4(ip);
+        if (packed == EMPTY) {
+            if (others == null) {
+                others = new HashSet<>();
+            }
+            return others.add(normalize(ip));
+        }
+        if ((ipv4Size + 1) * 4L > slots.length * 3L) {
+            resize();
+        }
+        if (!insert(slots, packed)) {
+            return false;
+        }
+        ipv4Size++;
+        return true;
+    }
+
+    int size() {
+        return ipv4Size + (others == null ? 0 : others.size());
+    }
+
+    private static String normalize(String ip) {
+        if (ip == null || ip.indexOf(':') < 0 || !IPV6_CHARS.matcher(ip).matches()) {
+            return ip;
+        }
+        try {
+            InetAddress address = InetAddress.getByName(ip);
+            // InetAddress сводит ::ffff:a.b.c.d к IPv4, а inet - нет: оставляем такой адрес отдельным от a.b.c.d
+            return address instanceof Inet4Address ? "::ffff:" + address.getHostAddress() : address.getHostAddress();
+        } catch (UnknownHostException e) {
+            return ip;
+        }
+    }
+
+    private void resize() {
+        long[] resized = new long[slots.length * 2];
+        for (long value : slots) {
+            if (value != EMPTY) {
+                insert(resized, value);
+            }
+        }
+        slots = resized;
+    }
+
+    private static boolean insert(long[] table, long value) {
+        int mask = table.length - 1;
+        int index = Long.hashCode(value * 0x9E3779B97F4A7C15L) & mask;
+        while (table[index] != EMPTY) {
+            if (table[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = value;
+        return true;
+    }
+
+    /**
+     * Возвращает адрес IPv4 плюс единица (ноль занят под пустую ячейку) или 0, если строка не IPv4.
+     */
+    private static long packIpv4(String ip) {
+        if (ip == null) {
+            return EMPTY;
+        }
+        long address = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c == '.') {
+                if (octet < 0 || ++dots > 3) {
+                    return EMPTY;
+                }
+                address = (address << 8) | octet;
+                octet = -1;
+            } else if (c >= '0' && c <= '9') {
+                if (octet == 0) {
+                    return EMPTY;
+                }
+                octet = octet < 0 ? c - '0' : octet * 10 + (c - '0');
+                if (octet > 255) {
+                    return EMPTY;
+                }
+            } else {
+                return EMPTY;
+            }
+        }
+        if (dots != 3 || octet < 0) {
+            return EMPTY;
+        }
+        return ((address << 8) | octet) + 1;
+    }
+}
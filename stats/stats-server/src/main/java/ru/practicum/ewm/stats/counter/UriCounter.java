@@ -0,0 +1,213 @@
+package ru.practicum.ewm.stats.counter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчики одного URI. Хиты последних windowMinutes минут его истории лежат в поминутных корзинах
+ * (число хитов и время первого и последнего хита в минуте), более старые свёрнуты в одну сводку с теми же полями.
+ * Диапазон запроса отвечается из памяти, если каждая корзина (и сводка) лежит в нём целиком или целиком вне его.
+ * Уникальные IP хранятся за всю историю и отвечают только на диапазоны, накрывающие её целиком.
+ * Каждый IP занимает единицу общего бюджета ipBudget; при переполнении своего лимита или бюджета
+ * множество IP выбрасывается, а его место возвращается в бюджет.
+ * Время хранится в микросекундах - с точностью столбца timestamp. Все обращения синхронизированы на экземпляре.
+ */
+class UriCounter {
+    private static final long MICROS_PER_MINUTE = 60_000_000L;
+    private static final int INITIAL_BUCKETS = 4;
+
+    private final int maxIps;
+    private final AtomicLong ipBudget;
+    private final long windowMinutes;
+    // null - уникальные IP по URI неизвестны
+    private IpSet ips = new IpSet();
+
+    private String app;
+    private boolean mixedApps;
+
+    private long oldHits;
+    private long oldFirst;
+    private long oldLast;
+
+    // корзины по возрастанию минуты
+    private long[] minutes = new long[INITIAL_BUCKETS];
+    private long[] counts = new long[INITIAL_BUCKETS];
+    private long[] firsts = new long[INITIAL_BUCKETS];
+    private long[] lasts = new long[INITIAL_BUCKETS];
+    private int buckets;
+
+    UriCounter(int maxIps, AtomicLong ipBudget, long windowMinutes) {
+        this.maxIps = maxIps;
+        this.ipBudget = ipBudget;
+        this.windowMinutes = windowMinutes;
+    }
+
+    static long micros(LocalDateTime time) {
+        // как PostgreSQL, округляем до микросекунды
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + (time.getNano() + 500) / 1_000;
+    }
+
+    synchronized void record(String app, String ip, LocalDateTime timestamp) {
+        if (this.app == null) {
+            this.app = app;
+        } else if (!Objects.equals(this.app, app)) {
+            mixedApps = true;
+        }
+        addHit(micros(timestamp));
+        addIp(ip);
+    }
+
+    /**
+     * Возвращает число хитов за [start, end] или -1, если по корзинам его не посчитать точно.
+     */
+    synchronized long count(LocalDateTime start, LocalDateTime end, boolean unique) {
+        if (mixedApps) {
+            return -1;
+        }
+        long from = micros(start);
+        long to = micros(end);
+        if (unique) {
+            return ips != null && (isEmpty() || (from <= firstHit() && to >= lastHit())) ? ips.size() : -1;
+        }
+        long total = 0;
+        if (oldHits > 0) {
+            long part = part(oldFirst, oldLast, oldHits, from, to);
+            if (part < 0) {
+                return -1;
+            }
+            total += part;
+        }
+        for (int i = 0; i < buckets; i++) {
+            long part = part(firsts[i], lasts[i], counts[i], from, to);
+            if (part < 0) {
+                return -1;
+            }
+            total += part;
+        }
+        return total;
+    }
+
+    synchronized boolean startsBefore(LocalDateTime moment) {
+        return !isEmpty() && firstHit() < micros(moment);
+    }
+
+    synchronized String getApp() {
+        return app;
+    }
+
+    private static long part(long first, long last, long hits, long from, long to) {
+        if (first >= from && last <= to) {
+            return hits;
+        }
+        if (last < from || first > to) {
+            return 0;
+        }
+        return -1;
+    }
+
+    private boolean isEmpty() {
+        return oldHits == 0 && buckets == 0;
+    }
+
+    private long firstHit() {
+        return oldHits > 0 ? oldFirst : firsts[0];
+    }
+
+    private long lastHit() {
+        return buckets > 0 ? lasts[buckets - 1] : oldLast;
+    }
+
+    private void addHit(long micros) {
+        long minute = Math.floorDiv(micros, MICROS_PER_MINUTE);
+        long horizon = (buckets > 0 ? Math.max(minutes[buckets - 1], minute) : minute) - windowMinutes;
+        if (minute <= horizon) {
+            addOld(micros, micros, 1);
+            return;
+        }
+        int index = Arrays.binarySearch(minutes, 0, buckets, minute);
+        if (index >= 0) {
+            counts[index]++;
+            firsts[index] = Math.min(firsts[index], micros);
+            lasts[index] = Math.max(lasts[index], micros);
+        } else {
+            insertBucket(-index - 1, minute, micros);
+        }
+        foldUpTo(horizon);
+    }
+
+    private void insertBucket(int index, long minute, long micros) {
+        if (buckets == minutes.length) {
+            int capacity = buckets * 2;
+            minutes = Arrays.copyOf(minutes, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            firsts = Arrays.copyOf(firsts, capacity);
+            lasts = Arrays.copyOf(lasts, capacity);
+        }
+        int tail = buckets - index;
+        System.arraycopy(minutes, index, minutes, index + 1, tail);
+        System.arraycopy(counts, index, counts, index + 1, tail);
+        System.arraycopy(firsts, index, firsts, index + 1, tail);
+        System.arraycopy(lasts, index, lasts, index + 1, tail);
+        minutes[index] = minute;
+        counts[index] = 1;
+        firsts[index] = micros;
+        lasts[index] = micros;
+        buckets++;
+    }
+
+    /**
+     * Сворачивает в сводку корзины не новее horizon: в памяти остаётся не больше windowMinutes корзин.
+     */
+    private void foldUpTo(long horizon) {
+        int folded = 0;
+        while (folded < buckets && minutes[folded] <= horizon) {
+            addOld(firsts[folded], lasts[folded], counts[folded]);
+            folded++;
+        }
+        if (folded == 0) {
+            return;
+        }
+        buckets -= folded;
+        System.arraycopy(minutes, folded, minutes, 0, buckets);
+        System.arraycopy(counts, folded, counts, 0, buckets);
+        System.arraycopy(firsts, folded, firsts, 0, buckets);
+        System.arraycopy(lasts, folded, lasts, 0, buckets);
+    }
+
+    private void addOld(long first, long last, long hits) {
+        if (oldHits == 0) {
+            oldFirst = first;
+            oldLast = last;
+        } else {
+            oldFirst = Math.min(oldFirst, first);
+            oldLast = Math.max(oldLast, last);
+        }
+        oldHits += hits;
+    }
+
+    private void dropIps() {
+        if (ips != null) {
+            ipBudget.addAndGet(ips.size());
+            ips = null;
+        }
+    }
+
+    private void addIp(String ip) {
+        if (ips == null) {
+            return;
+        }
+        if (ipBudget.decrementAndGet() < 0) {
+            ipBudget.incrementAndGet();
+            dropIps();
+            return;
+        }
+        if (!ips.add(ip)) {
+            ipBudget.incrementAndGet();
+        } else if (ips.size() > maxIps) {
+            dropIps();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ru.practicum.ewm.stats.dictionary;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словари hit_apps и hit_uris с кэшем в памяти процесса. Отсутствующие в кэше имена сначала ищутся
+ * простым запросом без транзакции, и только действительно новые добавляются в отдельной транзакции:
+ * идентификатор попадает в кэш только после коммита и не пропадёт при откате записи хитов.
+ * Вызывается вне транзакции записи хитов, чтобы поток не держал два соединения из пула.
+ */
+@Component
+public class HitDictionary {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate internTransaction;
+    private final int maxCacheSize;
+    private final Map<String, Integer> appIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+
+    public HitDictionary(NamedParameterJdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${stats.dictionary.max-cache-size:100000}") int maxCacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.internTransaction = new TransactionTemplate(transactionManager);
+        this.internTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    /**
+     * Возвращает идентификаторы приложений, добавляя отсутствующие в словарь.
+     */
+    public Map<String, Integer> internApps(Collection<String> names) {
+        return intern("hit_apps", appIds, names);
+    }
+
+    /**
+     * Возвращает идентификаторы URI, добавляя отсутствующие в словарь.
+     */
+    public Map<String, Integer> internUris(Collection<String> names) {
+        return intern("hit_uris", uriIds, names);
+    }
+
+    /**
+     * URI из словаря, начинающиеся с prefix. Символы % и _ в префиксе экранируются.
+     */
+    public List<String> findUrisByPrefix(String prefix) {
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return jdbcTemplate.queryForList("SELECT name FROM hit_uris WHERE name LIKE :pattern",
+                new MapSqlParameterSource("pattern", pattern), String.class);
+    }
+
+    private Map<String, Integer> intern(String table, Map<String, Integer> cache, Collection<String> names) {
+        Map<String, Integer> ids = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String name : names) {
+            Integer id = cache.get(name);
+            if (id != null) {
+                ids.put(name, id);
+            } else {
+                missing.add(name);
+            }
+        }
+        if (missing.isEmpty()) {
+            return ids;
+        }
+        // имена сверх размера кэша уже есть в словаре: обычно хватает одного чтения
+        jdbcTemplate.query("SELECT id, name FROM " + table + " WHERE name = ANY(:names)",
+                new MapSqlParameterSource("names", missing.toArray(String[]::new)),
+                rs -> {
+                    ids.put(rs.getString("name"), rs.getInt("id"));
+                });
+        Set<String> created = new HashSet<>(missing);
+        created.removeAll(ids.keySet());
+        if (!created.isEmpty()) {
+            insert(table, created, ids);
+        }
+        missing.forEach(name -> {
+            Integer id = ids.get(name);
+            if (id != null && cache.size() < maxCacheSize) {
+                cache.put(name, id);
+            }
+        });
+        return ids;
+    }
+
+    private void insert(String table, Set<String> created, Map<String, Integer> ids) {
+        internTransaction.executeWithoutResult(status -> {
+            MapSqlParameterSource[] batch = created.stream()
+                    .map(name -> new MapSqlParameterSource("name", name))
+                    .toArray(MapSqlParameterSource[]::new);
+            jdbcTemplate.batchUpdate("INSERT INTO " + table + " (name) VALUES (:name) ON CONFLICT (name) DO NOTHING",
+                    batch);
+            jdbcTemplate.query("SELECT id, name FROM " + table + " WHERE name = ANY(:names)",
+                    new MapSqlParameterSource("names", created.toArray(String[]::new)),
+                    rs -> {
+                        ids.put(rs.getString("name"), rs.getInt("id"));
+                    });
+        });
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.stats.exception;
+
+public class IngestOverloadedException extends RuntimeException {
+    public IngestOverloadedException(String message) {
+        super(message);
+    }
+}
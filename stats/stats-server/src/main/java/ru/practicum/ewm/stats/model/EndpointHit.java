@@ -1,32 +1,18 @@
 package ru.practicum.ewm.stats.model;
 
-import jakarta.persistence.*;
 import lombok.*;
 
 import java.time.LocalDateTime;
 
-@Entity
-@Table(name = "hits")
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class EndpointHit {
-    @Id
-    @Column(name = "id", nullable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
-
-    @Column(name = "app")
     private String app;
-
-    @Column(name = "uri")
     private String uri;
-
-    @Column(name = "ip")
     private String ip;
-
-    @Column(name = "timestamp")
     private LocalDateTime timestamp;
 }
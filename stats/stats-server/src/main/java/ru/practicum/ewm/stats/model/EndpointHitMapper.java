@@ -4,19 +4,71 @@ import org.springframework.stereotype.Component;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.SimpleDateTimeFormatter;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Pattern;
 
 @Component
 public class EndpointHitMapper {
+    private static final Pattern IPV4 = Pattern.compile(
+            "(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)(\\.(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)){3}");
+    // с такими символами строка разбирается как литерал IPv6 без обращения к DNS
+    private static final Pattern IPV6_CHARS = Pattern.compile("[0-9a-fA-F:.]+");
+
     public static EndpointHit toEndpointHit(EndpointHitDto endpointHitDto) {
+        if (endpointHitDto == null) {
+            throw new IllegalArgumentException("Хит не может быть пустым");
+        }
         return EndpointHit.builder()
-                .app(endpointHitDto.getApp())
-                .uri(endpointHitDto.getUri())
-                .ip(endpointHitDto.getIp())
-                .timestamp(LocalDateTime.now())
+                .app(requireText(endpointHitDto.getApp(), "Приложение не может быть пустым"))
+                .uri(requireText(endpointHitDto.getUri(), "URI не может быть пустым"))
+                .ip(requireIp(endpointHitDto.getIp()))
+                .timestamp(parseTimestamp(endpointHitDto.getTimestamp()))
                 .build();
     }
 
+    private static String requireText(String value, String message) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(message);
+        }
+        return value;
+    }
+
+    private static LocalDateTime parseTimestamp(String timestamp) {
+        if (timestamp == null) {
+            return LocalDateTime.now();
+        }
+        try {
+            return SimpleDateTimeFormatter.parse(timestamp);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректная дата: " + timestamp);
+        }
+    }
+
+    /**
+     * IP сохраняется в столбец inet: некорректный адрес отклоняется при приёме, а не ломает пакетную вставку.
+     * Принимаются только литералы IPv4/IPv6 - для имени хоста InetAddress.getByName выполнил бы DNS-запрос.
+     */
+    private static String requireIp(String ip) {
+        if (ip == null) {
+            throw new IllegalArgumentException("IP-адрес не может быть пустым");
+        }
+        if (IPV4.matcher(ip).matches()) {
+            return ip;
+        }
+        if (ip.indexOf(':') >= 0 && IPV6_CHARS.matcher(ip).matches()) {
+            try {
+                InetAddress.getByName(ip);
+                return ip;
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("Некорректный IP-адрес: " + ip);
+            }
+        }
+        throw new IllegalArgumentException("Некорректный IP-адрес: " + ip);
+    }
+
     public static EndpointHitDto toEndpointHitDto(EndpointHit endpointHit) {
         return EndpointHitDto.builder()
                 .app(endpointHit.getApp())
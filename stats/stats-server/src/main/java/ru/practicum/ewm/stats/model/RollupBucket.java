@@ -0,0 +1,15 @@
+package ru.practicum.ewm.stats.model;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+public record RollupBucket(String app, String uri, LocalDateTime bucket) implements Comparable<RollupBucket> {
+    private static final Comparator<RollupBucket> ORDER = Comparator.comparing(RollupBucket::app)
+            .thenComparing(RollupBucket::uri)
+            .thenComparing(RollupBucket::bucket);
+
+    @Override
+    public int compareTo(RollupBucket other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.ewm.stats.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public enum RollupGranularity {
+    MINUTE("hits_rollup_minute", null, ChronoUnit.MINUTES),
+    HOUR("hits_rollup_hour", "hits_hll_hour", ChronoUnit.HOURS),
+    DAY("hits_rollup_day", "hits_hll_day", ChronoUnit.DAYS);
+
+    private final String table;
+    private final String sketchTable;
+    private final ChronoUnit unit;
+
+    public static List<RollupGranularity> withSketches() {
+        return Arrays.stream(values())
+                .filter(granularity -> granularity.sketchTable != null)
+                .toList();
+    }
+
+    public LocalDateTime floor(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime dateTime) {
+        LocalDateTime floor = floor(dateTime);
+        return floor.equals(dateTime) ? floor : floor.plus(1, unit);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.practicum.ewm.stats.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Часть диапазона запроса статистики. Для granularity == null отрезок считается по сырым хитам,
+ * иначе - по таблице агрегатов соответствующей гранулярности. Правая граница включается только
+ * у хвостового сырого отрезка.
+ */
+public record StatsSegment(RollupGranularity granularity, LocalDateTime start, LocalDateTime end, boolean endInclusive) {
+    public static StatsSegment raw(LocalDateTime start, LocalDateTime end, boolean endInclusive) {
+        return new StatsSegment(null, start, end, endInclusive);
+    }
+
+    public static StatsSegment rollup(RollupGranularity granularity, LocalDateTime start, LocalDateTime end) {
+        return new StatsSegment(granularity, start, end, false);
+    }
+
+    public boolean isRaw() {
+        return granularity == null;
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.ewm.stats.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.util.List;
+
+/**
+ * Общие условия выборок из hits (алиас h): фильтр по URI через словарь и диапазон времени.
+ * Список URI передаётся одним параметром-массивом (= ANY), а не раскрывается в IN с параметром на каждый URI:
+ * текст запроса не зависит от числа URI, и тысячи URI не упираются в лимит параметров.
+ */
+final class HitConditions {
+    private HitConditions() {
+    }
+
+    static String rangeAndUris(boolean endInclusive, List<String> uris, MapSqlParameterSource params) {
+        String join = "";
+        if (uris != null) {
+            params.addValue("uris", uriArray(uris));
+            join = " JOIN hit_uris f ON f.id = h.uri_id AND f.name = ANY(:uris)";
+        }
+        return join + " WHERE h.timestamp >= :start AND h.timestamp " + (endInclusive ? "<=" : "<") + " :end";
+    }
+
+    static String[] uriArray(List<String> uris) {
+        return uris.toArray(String[]::new);
+    }
+}
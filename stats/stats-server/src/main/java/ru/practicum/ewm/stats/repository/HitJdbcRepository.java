@@ -0,0 +1,80 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.model.Stats;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сырые хиты. app и uri хранятся ссылками на словари hit_apps и hit_uris (см. HitDictionary),
+ * агрегация идёт по целочисленным идентификаторам, строки подставляются уже к сгруппированному результату.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitJdbcRepository {
+    private static final String INSERT_HIT = "INSERT INTO hits (app_id, uri_id, ip, timestamp) " +
+            "VALUES (:appId, :uriId, CAST(:ip AS INET), :timestamp)";
+    private static final RowMapper<Stats> STATS_ROW_MAPPER = (rs, rowNum) ->
+            new Stats(rs.getString("app"), rs.getString("uri"), rs.getLong("hits"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Сохраняет хиты; appIds и uriIds - идентификаторы из словаря ({@link HitDictionary}) для всех app и uri пачки.
+     */
+    public void saveAll(List<EndpointHit> hits, Map<String, Integer> appIds, Map<String, Integer> uriIds) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource[] batch = hits.stream()
+                .map(hit -> new MapSqlParameterSource()
+                        .addValue("appId", appIds.get(hit.getApp()))
+                        .addValue("uriId", uriIds.get(hit.getUri()))
+                        .addValue("ip", hit.getIp())
+                        .addValue("timestamp", Timestamp.valueOf(hit.getTimestamp())))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(INSERT_HIT, batch);
+    }
+
+    /**
+     * Число хитов по приложению и URI за [start, end] (или [start, end), если endInclusive = false),
+     * по убыванию числа хитов.
+     */
+    public List<Stats> findStats(LocalDateTime start, LocalDateTime end, boolean endInclusive, List<String> uris) {
+        return findStats("COUNT(*)", start, end, endInclusive, uris);
+    }
+
+    /**
+     * Число уникальных IP по приложению и URI за [start, end], по убыванию.
+     */
+    public List<Stats> findUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return findStats("COUNT(DISTINCT h.ip)", start, end, true, uris);
+    }
+
+    private List<Stats> findStats(String aggregate, LocalDateTime start, LocalDateTime end, boolean endInclusive,
+                                  List<String> uris) {
+        if (uris != null && uris.isEmpty()) {
+            return List.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        String sql = "SELECT a.name AS app, u.name AS uri, s.hits FROM (" +
+                "SELECT h.app_id, h.uri_id, " + aggregate + " AS hits FROM hits h" +
+                HitConditions.rangeAndUris(endInclusive, uris, params) +
+                " GROUP BY h.app_id, h.uri_id) s " +
+                "JOIN hit_apps a ON a.id = s.app_id " +
+                "JOIN hit_uris u ON u.id = s.uri_id " +
+                "ORDER BY s.hits DESC";
+        return jdbcTemplate.query(sql, params, STATS_ROW_MAPPER);
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Месячные секции таблицы hits: hits_YYYY_MM плюс секция по умолчанию hits_default.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitPartitionRepository {
+    private static final Pattern PARTITION_NAME = Pattern.compile("hits_(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final String SELECT_PARTITIONS = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'hits'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void create(YearMonth month) {
+        jdbcTemplate.queryForList("SELECT create_hits_partition(?)", Date.valueOf(month.atDay(1)));
+    }
+
+    public List<YearMonth> findMonths() {
+        return jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class).stream()
+                .map(PARTITION_NAME::matcher)
+                .filter(Matcher::matches)
+                .map(matcher -> YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))))
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Отключает секцию обычным DETACH: блокировка hits держится только до конца транзакции вызывающего,
+     * а ожидание её ограничено lockTimeoutMillis, чтобы не выстраивать за собой очередь запросов к hits.
+     */
+    public void detach(YearMonth month, long lockTimeoutMillis) {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMillis);
+        jdbcTemplate.execute("ALTER TABLE hits DETACH PARTITION hits_" + month.format(PARTITION_SUFFIX));
+    }
+
+    public int deleteDefaultBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM hits_default WHERE timestamp < ?", Timestamp.valueOf(cutoff));
+    }
+
+    public void drop(YearMonth month) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS hits_" + month.format(PARTITION_SUFFIX));
+    }
+}
@@ -0,0 +1,65 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.stats.model.RollupBucket;
+import ru.practicum.ewm.stats.model.RollupGranularity;
+import ru.practicum.ewm.stats.model.Stats;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class RollupRepository {
+    private static final RowMapper<Stats> STATS_ROW_MAPPER = (rs, rowNum) ->
+            new Stats(rs.getString("app"), rs.getString("uri"), rs.getLong("hits"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void increment(RollupGranularity granularity, Map<RollupBucket, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO " + granularity.getTable() + " (app, uri, bucket, hits) " +
+                "VALUES (:app, :uri, :bucket, :hits) " +
+                "ON CONFLICT (app, uri, bucket) DO UPDATE SET hits = " + granularity.getTable() + ".hits + EXCLUDED.hits";
+        MapSqlParameterSource[] batch = counts.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("app", entry.getKey().app())
+                        .addValue("uri", entry.getKey().uri())
+                        .addValue("bucket", Timestamp.valueOf(entry.getKey().bucket()))
+                        .addValue("hits", entry.getValue()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(sql, batch);
+    }
+
+    public int deleteBefore(RollupGranularity granularity, LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM " + granularity.getTable() + " WHERE bucket < :cutoff",
+                new MapSqlParameterSource("cutoff", Timestamp.valueOf(cutoff)));
+    }
+
+    public List<Stats> findStats(RollupGranularity granularity, LocalDateTime start, LocalDateTime end,
+                                 List<String> uris) {
+        if (uris != null && uris.isEmpty()) {
+            return List.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        StringBuilder sql = new StringBuilder("SELECT app, uri, SUM(hits) AS hits FROM ")
+                .append(granularity.getTable())
+                .append(" WHERE bucket >= :start AND bucket < :end");
+        if (uris != null) {
+            sql.append(" AND uri = ANY(:uris)");
+            params.addValue("uris", HitConditions.uriArray(uris));
+        }
+        sql.append(" GROUP BY app, uri");
+        return jdbcTemplate.query(sql.toString(), params, STATS_ROW_MAPPER);
+    }
+}
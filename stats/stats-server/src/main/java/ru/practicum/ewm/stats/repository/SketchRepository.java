@@ -0,0 +1,114 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.stats.model.RollupBucket;
+import ru.practicum.ewm.stats.model.RollupGranularity;
+import ru.practicum.ewm.stats.model.StatsKey;
+import ru.practicum.ewm.stats.sketch.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+@Repository
+@RequiredArgsConstructor
+public class SketchRepository {
+    private static final String BUCKET_KEYS =
+            "unnest(:apps, :uris, CAST(:buckets AS timestamp[])) AS k(app, uri, bucket)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Сливает скетчи с сохранёнными в Java: недостающие строки создаются пустыми, затем все строки пачки
+     * блокируются одним SELECT ... FOR UPDATE в порядке ключа, объединяются и записываются обратно.
+     * Три запроса на пачку вместо поштучного слияния 4096 регистров в PL/pgSQL.
+     */
+    public void merge(RollupGranularity granularity, Map<RollupBucket, HyperLogLog> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        String table = granularity.getSketchTable();
+        MapSqlParameterSource keys = new MapSqlParameterSource()
+                .addValue("apps", sketches.keySet().stream().map(RollupBucket::app).toArray(String[]::new))
+                .addValue("uris", sketches.keySet().stream().map(RollupBucket::uri).toArray(String[]::new))
+                .addValue("buckets", sketches.keySet().stream().map(key -> key.bucket().toString()).toArray(String[]::new))
+                .addValue("empty", new HyperLogLog().toBytes());
+        jdbcTemplate.update("INSERT INTO " + table + " (app, uri, bucket, sketch) " +
+                "SELECT k.app, k.uri, k.bucket, :empty FROM " + BUCKET_KEYS + " ORDER BY k.app, k.uri, k.bucket " +
+                "ON CONFLICT (app, uri, bucket) DO NOTHING", keys);
+        Map<RollupBucket, HyperLogLog> merged = new TreeMap<>();
+        jdbcTemplate.query("SELECT t.app, t.uri, t.bucket, t.sketch FROM " + table + " t " +
+                "JOIN " + BUCKET_KEYS + " ON t.app = k.app AND t.uri = k.uri AND t.bucket = k.bucket " +
+                "ORDER BY t.app, t.uri, t.bucket FOR UPDATE OF t", keys, rs -> {
+            RollupBucket key = new RollupBucket(rs.getString("app"), rs.getString("uri"),
+                    rs.getTimestamp("bucket").toLocalDateTime());
+            HyperLogLog sketch = HyperLogLog.fromBytes(rs.getBytes("sketch"));
+            sketch.merge(sketches.get(key));
+            merged.put(key, sketch);
+        });
+        MapSqlParameterSource[] batch = merged.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("app", entry.getKey().app())
+                        .addValue("uri", entry.getKey().uri())
+                        .addValue("bucket", Timestamp.valueOf(entry.getKey().bucket()))
+                        .addValue("sketch", entry.getValue().toBytes()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("UPDATE " + table + " SET sketch = :sketch " +
+                "WHERE app = :app AND uri = :uri AND bucket = :bucket", batch);
+    }
+
+    public int deleteBefore(RollupGranularity granularity, LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM " + granularity.getSketchTable() + " WHERE bucket < :cutoff",
+                new MapSqlParameterSource("cutoff", Timestamp.valueOf(cutoff)));
+    }
+
+    public void findSketches(RollupGranularity granularity, LocalDateTime start, LocalDateTime end,
+                             List<String> uris, BiConsumer<StatsKey, HyperLogLog> consumer) {
+        MapSqlParameterSource params = rangeParams(start, end);
+        String sql = "SELECT app, uri, sketch FROM " + granularity.getSketchTable() +
+                " WHERE bucket >= :start AND bucket < :end" + urisCondition(uris, params);
+        jdbcTemplate.query(sql, params, rs -> {
+            consumer.accept(new StatsKey(rs.getString("app"), rs.getString("uri")),
+                    HyperLogLog.fromBytes(rs.getBytes("sketch")));
+        });
+    }
+
+    public void findDistinctIps(LocalDateTime start, LocalDateTime end, boolean endInclusive, List<String> uris,
+                                BiConsumer<StatsKey, String> consumer) {
+        if (uris != null && uris.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource params = rangeParams(start, end);
+        String sql = "SELECT a.name AS app, u.name AS uri, host(d.ip) AS ip FROM (" +
+                "SELECT DISTINCT h.app_id, h.uri_id, h.ip FROM hits h" +
+                HitConditions.rangeAndUris(endInclusive, uris, params) + ") d " +
+                "JOIN hit_apps a ON a.id = d.app_id " +
+                "JOIN hit_uris u ON u.id = d.uri_id";
+        jdbcTemplate.query(sql, params, rs -> {
+            consumer.accept(new StatsKey(rs.getString("app"), rs.getString("uri")), rs.getString("ip"));
+        });
+    }
+
+    private MapSqlParameterSource rangeParams(LocalDateTime start, LocalDateTime end) {
+        return new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+    }
+
+    private String urisCondition(List<String> uris, MapSqlParameterSource params) {
+        if (uris == null) {
+            return "";
+        }
+        if (uris.isEmpty()) {
+            return " AND FALSE";
+        }
+        params.addValue("uris", HitConditions.uriArray(uris));
+        return " AND uri = ANY(:uris)";
+    }
+}
@@ -0,0 +1,53 @@
+package ru.practicum.ewm.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.stats.counter.HitCounterEngine;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.repository.HitJdbcRepository;
+
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class HitBatchWriter {
+    private final HitJdbcRepository hitJdbcRepository;
+    private final RollupWriter rollupWriter;
+    private final HitCounterEngine hitCounterEngine;
+    private final HitDictionary hitDictionary;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Записывает пачку хитов и приращения агрегатов в одной транзакции. Словари app и uri пополняются до её начала:
+     * транзакция пополнения не держит второе соединение из пула, пока открыта транзакция записи.
+     */
+    public void write(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> appIds = hitDictionary.internApps(hits.stream().map(EndpointHit::getApp).toList());
+        Map<String, Integer> uriIds = hitDictionary.internUris(hits.stream().map(EndpointHit::getUri).toList());
+        transactionTemplate.executeWithoutResult(status -> writeInTransaction(hits, appIds, uriIds));
+    }
+
+    private void writeInTransaction(List<EndpointHit> hits, Map<String, Integer> appIds,
+                                    Map<String, Integer> uriIds) {
+        hitJdbcRepository.saveAll(hits, appIds, uriIds);
+        rollupWriter.write(hits);
+        // счётчики в памяти пополняются только закоммиченными хитами
+        List<EndpointHit> committed = List.copyOf(hits);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (hitCounterEngine.isReady()) {
+                    hitCounterEngine.record(committed);
+                }
+            }
+        });
+    }
+}
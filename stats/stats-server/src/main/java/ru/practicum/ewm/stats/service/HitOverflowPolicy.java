@@ -0,0 +1,7 @@
+package ru.practicum.ewm.stats.service;
+
+public enum HitOverflowPolicy {
+    BLOCK,
+    DROP,
+    CALLER_RUNS
+}
@@ -0,0 +1,109 @@
+package ru.practicum.ewm.stats.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.stats.counter.HitCounterEngine;
+import ru.practicum.ewm.stats.model.RollupGranularity;
+import ru.practicum.ewm.stats.repository.HitPartitionRepository;
+import ru.practicum.ewm.stats.repository.RollupRepository;
+import ru.practicum.ewm.stats.repository.SketchRepository;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Обслуживание месячных секций hits: заранее создаёт секции на stats.partitions.months-ahead месяцев вперёд
+ * и, если задан stats.partitions.retention-months, удаляет секции старше срока хранения целиком, а хиты
+ * того же периода в hits_default и агрегаты за него - построчно.
+ */
+@Slf4j
+@Component
+public class HitPartitionMaintenance {
+    private final HitPartitionRepository hitPartitionRepository;
+    private final RollupRepository rollupRepository;
+    private final SketchRepository sketchRepository;
+    private final HitCounterEngine hitCounterEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final long detachLockTimeoutMillis;
+
+    public HitPartitionMaintenance(HitPartitionRepository hitPartitionRepository,
+                                   RollupRepository rollupRepository,
+                                   SketchRepository sketchRepository,
+                                   HitCounterEngine hitCounterEngine,
+                                   TransactionTemplate transactionTemplate,
+                                   @Value("${stats.partitions.months-ahead:3}") int monthsAhead,
+                                   @Value("${stats.partitions.retention-months:0}") int retentionMonths,
+                                   @Value("${stats.partitions.detach-lock-timeout-ms:5000}") long detachLockTimeoutMillis) {
+        this.hitPartitionRepository = hitPartitionRepository;
+        this.rollupRepository = rollupRepository;
+        this.sketchRepository = sketchRepository;
+        this.hitCounterEngine = hitCounterEngine;
+        this.transactionTemplate = transactionTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.detachLockTimeoutMillis = detachLockTimeoutMillis;
+    }
+
+    @Scheduled(initialDelayString = "${stats.partitions.initial-delay-ms:0}",
+            fixedDelayString = "${stats.partitions.interval-ms:3600000}")
+    public void maintain() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                hitPartitionRepository.create(month);
+            } catch (Exception e) {
+                // ошибка одного месяца не мешает создать остальные, повтор - при следующем запуске
+                log.error("Не удалось создать секцию hits за {}: {}", month, e.getMessage());
+            }
+        }
+        if (retentionMonths > 0) {
+            dropExpired(current.minusMonths(retentionMonths));
+        }
+    }
+
+    private void dropExpired(YearMonth firstRetained) {
+        LocalDateTime cutoff = firstRetained.atDay(1).atStartOfDay();
+        for (YearMonth month : hitPartitionRepository.findMonths()) {
+            if (!month.isBefore(firstRetained)) {
+                break;
+            }
+            try {
+                dropPartition(month);
+                log.info("Удалена секция хитов за {}", month);
+            } catch (Exception e) {
+                log.error("Не удалось удалить секцию хитов за {}: {}", month, e.getMessage());
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int deleted = hitPartitionRepository.deleteDefaultBefore(cutoff);
+                if (deleted > 0) {
+                    log.info("Удалено {} хитов из hits_default до {}", deleted, cutoff);
+                }
+                for (RollupGranularity granularity : RollupGranularity.values()) {
+                    rollupRepository.deleteBefore(granularity, cutoff);
+                }
+                for (RollupGranularity granularity : RollupGranularity.withSketches()) {
+                    sketchRepository.deleteBefore(granularity, cutoff);
+                }
+            });
+            hitCounterEngine.retainFrom(cutoff);
+        } catch (Exception e) {
+            log.error("Не удалось удалить хиты до {}: {}", cutoff, e.getMessage());
+        }
+    }
+
+    // секция сначала отключается от hits, а удаляется уже отдельной таблицей, не блокируя hits;
+    // DETACH ... CONCURRENTLY недоступен, так как у hits всегда есть секция по умолчанию hits_default
+    private void dropPartition(YearMonth month) {
+        transactionTemplate.executeWithoutResult(status ->
+                hitPartitionRepository.detach(month, detachLockTimeoutMillis));
+        hitPartitionRepository.drop(month);
+    }
+}
@@ -0,0 +1,258 @@
+package ru.practicum.ewm.stats.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.exception.IngestOverloadedException;
+import ru.practicum.ewm.stats.model.EndpointHit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Очередь отложенной записи хитов: запросы подтверждаются сразу после постановки в очередь,
+ * а фоновый поток сохраняет их пачками по размеру или по истечении интервала.
+ * Каждому хиту присваивается порядковый номер: чтение статистики по URI с незаписанными хитами
+ * ждёт ({@link #awaitPersisted}), пока поток не сохранит их, и просит его не дожидаться интервала.
+ */
+@Slf4j
+@Component
+public class HitWriteBehindBuffer {
+    private static final long FLUSH_REQUEST_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final HitBatchWriter hitBatchWriter;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+    private final HitOverflowPolicy overflowPolicy;
+    private final long readYourWritesTimeoutNanos;
+    private final BlockingQueue<PendingHit> queue = new LinkedBlockingQueue<>();
+    // ёмкость очереди: место занимается до захвата монитора и освобождается потоком записи только после
+    // коммита пачки, поэтому хиты, уже взятые из очереди, но ещё не записанные, тоже занимают место
+    private final Semaphore capacity;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Long> lastSequenceByUri = new ConcurrentHashMap<>();
+    private final Object persistedMonitor = new Object();
+
+    private volatile long persistedSequence;
+    private volatile boolean flushRequested;
+    private volatile boolean running;
+    private Thread worker;
+
+    public HitWriteBehindBuffer(HitBatchWriter hitBatchWriter,
+                                MeterRegistry meterRegistry,
+                                @Value("${stats.ingest.async.enabled:false}") boolean enabled,
+                                @Value("${stats.ingest.async.queue-capacity:100000}") int queueCapacity,
+                                @Value("${stats.ingest.async.batch-size:500}") int batchSize,
+                                @Value("${stats.ingest.async.flush-interval-ms:200}") long flushIntervalMillis,
+                                @Value("${stats.ingest.async.offer-timeout-ms:100}") long offerTimeoutMillis,
+                                @Value("${stats.ingest.async.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis,
+                                @Value("${stats.ingest.async.overflow-policy:CALLER_RUNS}") HitOverflowPolicy overflowPolicy,
+                                @Value("${stats.ingest.async.read-your-writes-timeout-ms:1000}") long readYourWritesTimeoutMillis) {
+        this.hitBatchWriter = hitBatchWriter;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.overflowPolicy = overflowPolicy;
+        this.readYourWritesTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesTimeoutMillis);
+        this.capacity = new Semaphore(queueCapacity);
+        this.droppedCounter = meterRegistry.counter("stats.ingest.dropped");
+        this.failedCounter = meterRegistry.counter("stats.ingest.failed");
+        Gauge.builder("stats.ingest.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = Thread.ofPlatform().name("hit-write-behind").start(this::run);
+        log.info("Асинхронная запись хитов включена: batchSize={}, overflowPolicy={}", batchSize, overflowPolicy);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        worker.join(shutdownTimeoutMillis);
+        if (!queue.isEmpty()) {
+            log.warn("При остановке не записано {} хитов", queue.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void submit(EndpointHit hit) {
+        if (acquireCapacity()) {
+            // номер выдаётся под монитором очереди, чтобы порядок номеров совпадал с порядком в очереди;
+            // ожидание места идёт до захвата монитора, поэтому под ним ничего не блокируется
+            synchronized (queue) {
+                PendingHit pending = new PendingHit(sequence.incrementAndGet(), hit);
+                queue.add(pending);
+                lastSequenceByUri.put(hit.getUri(), pending.sequence());
+            }
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                droppedCounter.increment();
+                throw new IngestOverloadedException("Очередь записи хитов переполнена");
+            }
+            case DROP -> droppedCounter.increment();
+            case CALLER_RUNS -> hitBatchWriter.write(List.of(hit));
+        }
+    }
+
+    /**
+     * Ждёт, пока будут сохранены все принятые хиты по указанным URI (по всем, если uris == null),
+     * но не дольше stats.ingest.async.read-your-writes-timeout-ms.
+     */
+    public void awaitPersisted(List<String> uris) {
+        if (!enabled) {
+            return;
+        }
+        awaitSequence((uris == null ? lastSequenceByUri.values().stream() : uris.stream().map(lastSequenceByUri::get))
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .max()
+                .orElse(0L));
+    }
+
+    /**
+     * То же, что {@link #awaitPersisted(List)}, для всех URI, начинающихся с uriPrefix.
+     */
+    public void awaitPersistedWithPrefix(String uriPrefix) {
+        if (!enabled) {
+            return;
+        }
+        awaitSequence(lastSequenceByUri.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(uriPrefix))
+                .mapToLong(Map.Entry::getValue)
+                .max()
+                .orElse(0L));
+    }
+
+    private void awaitSequence(long target) {
+        if (target <= persistedSequence) {
+            return;
+        }
+        flushRequested = true;
+        long deadline = System.nanoTime() + readYourWritesTimeoutNanos;
+        synchronized (persistedMonitor) {
+            while (persistedSequence < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    log.warn("Не дождались записи хитов до seq={}, записано до seq={}", target, persistedSequence);
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(persistedMonitor, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean acquireCapacity() {
+        if (overflowPolicy != HitOverflowPolicy.BLOCK) {
+            return capacity.tryAcquire();
+        }
+        try {
+            return capacity.tryAcquire(offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void run() {
+        List<PendingHit> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            flush(batch);
+        }
+    }
+
+    private void collect(List<PendingHit> batch) throws InterruptedException {
+        PendingHit first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || flushRequested) {
+                return;
+            }
+            PendingHit next = queue.poll(Math.min(remaining, FLUSH_REQUEST_CHECK_NANOS), TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void flush(List<PendingHit> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        flushRequested = false;
+        try {
+            hitBatchWriter.write(batch.stream().map(PendingHit::hit).toList());
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            log.error("Не удалось записать пачку из {} хитов: {}", batch.size(), e.getMessage());
+        } finally {
+            capacity.release(batch.size());
+        }
+        for (PendingHit pending : batch) {
+            lastSequenceByUri.remove(pending.hit().getUri(), pending.sequence());
+        }
+        markPersisted(batch.getLast().sequence());
+        batch.clear();
+    }
+
+    private void markPersisted(long sequence) {
+        synchronized (persistedMonitor) {
+            if (sequence > persistedSequence) {
+                persistedSequence = sequence;
+            }
+            persistedMonitor.notifyAll();
+        }
+    }
+
+    private record PendingHit(long sequence, EndpointHit hit) {
+    }
+}
@@ -0,0 +1,75 @@
+package ru.practicum.ewm.stats.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.model.EndpointHit;
+import ru.practicum.ewm.stats.model.RollupBucket;
+import ru.practicum.ewm.stats.model.RollupGranularity;
+import ru.practicum.ewm.stats.repository.RollupRepository;
+import ru.practicum.ewm.stats.repository.SketchRepository;
+import ru.practicum.ewm.stats.sketch.HyperLogLog;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Агрегаты и скетчи по пачке хитов. Вызывается в транзакции записи пачки (HitBatchWriter): приращения
+ * сначала сворачиваются в памяти - один upsert на ключ за пачку, а не на хит - и коммитятся вместе с хитами,
+ * поэтому агрегаты не расходятся с hits ни при каком завершении процесса.
+ */
+@Component
+public class RollupWriter {
+    private final RollupRepository rollupRepository;
+    private final SketchRepository sketchRepository;
+    private final boolean rollupEnabled;
+    private final boolean sketchEnabled;
+
+    public RollupWriter(RollupRepository rollupRepository,
+                        SketchRepository sketchRepository,
+                        @Value("${stats.rollup.enabled:true}") boolean rollupEnabled,
+                        @Value("${stats.hll.enabled:true}") boolean sketchEnabled) {
+        this.rollupRepository = rollupRepository;
+        this.sketchRepository = sketchRepository;
+        this.rollupEnabled = rollupEnabled;
+        this.sketchEnabled = sketchEnabled;
+    }
+
+    public boolean isRollupEnabled() {
+        return rollupEnabled;
+    }
+
+    public boolean isSketchEnabled() {
+        return sketchEnabled;
+    }
+
+    public void write(List<EndpointHit> hits) {
+        if (rollupEnabled) {
+            // TreeMap задаёт одинаковый порядок блокировки строк агрегатов для параллельных транзакций
+            Map<RollupGranularity, Map<RollupBucket, Long>> counts = new EnumMap<>(RollupGranularity.class);
+            for (EndpointHit hit : hits) {
+                for (RollupGranularity granularity : RollupGranularity.values()) {
+                    counts.computeIfAbsent(granularity, key -> new TreeMap<>())
+                            .merge(bucket(hit, granularity), 1L, Long::sum);
+                }
+            }
+            counts.forEach(rollupRepository::increment);
+        }
+        if (sketchEnabled) {
+            Map<RollupGranularity, Map<RollupBucket, HyperLogLog>> sketches = new EnumMap<>(RollupGranularity.class);
+            for (EndpointHit hit : hits) {
+                for (RollupGranularity granularity : RollupGranularity.withSketches()) {
+                    sketches.computeIfAbsent(granularity, key -> new TreeMap<>())
+                            .computeIfAbsent(bucket(hit, granularity), key -> new HyperLogLog())
+                            .add(hit.getIp());
+                }
+            }
+            sketches.forEach(sketchRepository::merge);
+        }
+    }
+
+    private RollupBucket bucket(EndpointHit hit, RollupGranularity granularity) {
+        return new RollupBucket(hit.getApp(), hit.getUri(), granularity.floor(hit.getTimestamp()));
+    }
+}
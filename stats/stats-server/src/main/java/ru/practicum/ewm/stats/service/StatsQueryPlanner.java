@@ -0,0 +1,67 @@
+package ru.practicum.ewm.stats.service;
+
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.stats.model.RollupGranularity;
+import ru.practicum.ewm.stats.model.StatsSegment;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class StatsQueryPlanner {
+
+    /**
+     * Разбивает диапазон [start, end] на отрезки: середина покрывается самыми крупными из доступных
+     * агрегатов, по сырым хитам считаются только неровные края.
+     *
+     * @param levels доступные гранулярности от мелкой к крупной
+     */
+    public List<StatsSegment> plan(LocalDateTime start, LocalDateTime end, List<RollupGranularity> levels) {
+        List<StatsSegment> segments = new ArrayList<>();
+        if (levels.isEmpty()) {
+            segments.add(StatsSegment.raw(start, end, true));
+            return segments;
+        }
+
+        RollupGranularity finest = levels.getFirst();
+        LocalDateTime alignedStart = finest.ceil(start);
+        LocalDateTime alignedEnd = finest.floor(end);
+        if (!alignedStart.isBefore(alignedEnd)) {
+            segments.add(StatsSegment.raw(start, end, true));
+            return segments;
+        }
+
+        if (start.isBefore(alignedStart)) {
+            segments.add(StatsSegment.raw(start, alignedStart, false));
+        }
+        decompose(alignedStart, alignedEnd, levels, 0, segments);
+        segments.add(StatsSegment.raw(alignedEnd, end, true));
+        return segments;
+    }
+
+    private void decompose(LocalDateTime start, LocalDateTime end, List<RollupGranularity> levels, int level,
+                           List<StatsSegment> segments) {
+        RollupGranularity granularity = levels.get(level);
+        if (level == levels.size() - 1) {
+            segments.add(StatsSegment.rollup(granularity, start, end));
+            return;
+        }
+
+        RollupGranularity coarser = levels.get(level + 1);
+        LocalDateTime coarseStart = coarser.ceil(start);
+        LocalDateTime coarseEnd = coarser.floor(end);
+        if (!coarseStart.isBefore(coarseEnd)) {
+            segments.add(StatsSegment.rollup(granularity, start, end));
+            return;
+        }
+
+        if (start.isBefore(coarseStart)) {
+            segments.add(StatsSegment.rollup(granularity, start, coarseStart));
+        }
+        decompose(coarseStart, coarseEnd, levels, level + 1, segments);
+        if (coarseEnd.isBefore(end)) {
+            segments.add(StatsSegment.rollup(granularity, coarseEnd, end));
+        }
+    }
+}
@@ -1,35 +1,153 @@
 package ru.practicum.ewm.stats.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.SimpleDateTimeFormatter;
 import ru.practicum.dto.StatsDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.ewm.stats.counter.HitCounterEngine;
+import ru.practicum.ewm.stats.dictionary.HitDictionary;
+import ru.practicum.ewm.stats.model.EndpointHit;
 import ru.practicum.ewm.stats.model.EndpointHitMapper;
+import ru.practicum.ewm.stats.model.HitsSaveResult;
+import ru.practicum.ewm.stats.model.RollupGranularity;
 import ru.practicum.ewm.stats.model.Stats;
+import ru.practicum.ewm.stats.model.StatsKey;
 import ru.practicum.ewm.stats.model.StatsMapper;
-import ru.practicum.ewm.stats.repository.StatsRepository;
+import ru.practicum.ewm.stats.model.StatsSegment;
+import ru.practicum.ewm.stats.repository.HitJdbcRepository;
+import ru.practicum.ewm.stats.repository.RollupRepository;
+import ru.practicum.ewm.stats.repository.SketchRepository;
+import ru.practicum.ewm.stats.sketch.HyperLogLog;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class StatsService {
-    @Autowired
-    private final StatsRepository statsRepository;
+    private final HitJdbcRepository hitJdbcRepository;
+    private final HitWriteBehindBuffer hitWriteBehindBuffer;
+    private final HitBatchWriter hitBatchWriter;
+    private final RollupWriter rollupWriter;
+    private final ObjectMapper objectMapper;
+    private final StatsQueryPlanner statsQueryPlanner;
+    private final RollupRepository rollupRepository;
+    private final SketchRepository sketchRepository;
+    private final HitCounterEngine hitCounterEngine;
+    private final HitDictionary hitDictionary;
+
+    @Value("${stats.ingest.bulk.batch-size:1000}")
+    private int bulkBatchSize;
 
     public EndpointHitDto hit(EndpointHitDto endpointHitDto) {
-        return EndpointHitMapper.toEndpointHitDto(
-                statsRepository.save(EndpointHitMapper.toEndpointHit(endpointHitDto))
-        );
+        EndpointHit endpointHit = EndpointHitMapper.toEndpointHit(endpointHitDto);
+        if (hitWriteBehindBuffer.isEnabled()) {
+            hitWriteBehindBuffer.submit(endpointHit);
+        } else {
+            hitBatchWriter.write(List.of(endpointHit));
+        }
+        return EndpointHitMapper.toEndpointHitDto(endpointHit);
+    }
+
+    /**
+     * Пакетный приём хитов. Тело читается потоком, пачки по stats.ingest.bulk.batch-size коммитятся по отдельности:
+     * при ошибке в элементе ответ 400 содержит его номер (с нуля) и число уже сохранённых хитов N -
+     * сохранены первые N элементов, повторять отправку нужно с элемента N.
+     */
+    public HitsSaveResult hits(InputStream body) throws IOException {
+        long saved = 0;
+        long index = 0;
+        List<EndpointHit> batch = new ArrayList<>(bulkBatchSize);
+        ObjectReader hitReader = objectMapper.readerFor(EndpointHitDto.class);
+        try (MappingIterator<EndpointHitDto> iterator = hitReader.readValues(body)) {
+            while (iterator.hasNextValue()) {
+                batch.add(toEndpointHit(iterator.nextValue(), index, saved));
+                index++;
+                if (batch.size() == bulkBatchSize) {
+                    hitBatchWriter.write(batch);
+                    saved += batch.size();
+                    batch.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw invalidHit(index, saved, e.getOriginalMessage());
+        }
+        hitBatchWriter.write(batch);
+        return new HitsSaveResult(saved + batch.size());
     }
 
-    public List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    private EndpointHit toEndpointHit(EndpointHitDto endpointHitDto, long index, long saved) {
+        try {
+            return EndpointHitMapper.toEndpointHit(endpointHitDto);
+        } catch (IllegalArgumentException e) {
+            throw invalidHit(index, saved, e.getMessage());
+        }
+    }
+
+    private IllegalArgumentException invalidHit(long index, long saved, String reason) {
+        return new IllegalArgumentException("Некорректный хит #" + index + ", сохранено хитов: " + saved + ": "
+                + reason);
+    }
+
+    public List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                   Boolean approximate) {
+        validateDates(start, end);
+        hitWriteBehindBuffer.awaitPersisted(uris);
+        Optional<List<StatsDto>> counted = hitCounterEngine.findStats(start, end, uris, unique);
+        if (counted.isPresent()) {
+            return counted.get();
+        }
+        if (!unique.equals(Boolean.TRUE)) {
+            return getStats(start, end, uris);
+        }
+        return approximate.equals(Boolean.TRUE) && rollupWriter.isSketchEnabled()
+                ? getApproximateUniqueStats(start, end, uris)
+                : getUniqueStats(start, end, uris);
+    }
+
+    /**
+     * Запрос POST /stats/query. Префикс URI раскрывается через словарь hit_uris в список URI,
+     * дальше запрос идёт теми же путями, что и GET /stats (счётчики в памяти, агрегаты, сырые хиты).
+     */
+    public List<StatsDto> query(StatsQueryDto query) {
+        LocalDateTime start = parseDate(query.getStart(), "Дата начала не может быть пустой");
+        LocalDateTime end = parseDate(query.getEnd(), "Дата конца не может быть пустой");
+        boolean unique = Boolean.TRUE.equals(query.getUnique());
+        boolean approximate = Boolean.TRUE.equals(query.getApproximate());
+        if (query.getUriPrefix() == null) {
+            return getStats(start, end, query.getUris(), unique, approximate);
+        }
+        if (query.getUris() != null) {
+            throw new IllegalArgumentException("Нельзя одновременно указать uris и uriPrefix");
+        }
         validateDates(start, end);
-        return unique.equals(Boolean.TRUE)
-                ? getUniqueStats(start, end, uris)
-                : getStats(start, end, uris);
+        hitWriteBehindBuffer.awaitPersistedWithPrefix(query.getUriPrefix());
+        return getStats(start, end, hitDictionary.findUrisByPrefix(query.getUriPrefix()), unique, approximate);
+    }
+
+    private LocalDateTime parseDate(String date, String emptyMessage) {
+        if (date == null) {
+            throw new IllegalArgumentException(emptyMessage);
+        }
+        try {
+            return SimpleDateTimeFormatter.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректная дата: " + date);
+        }
     }
 
     private void validateDates(LocalDateTime start, LocalDateTime end) {
@@ -47,11 +165,58 @@ public class StatsService {
     }
 
     private List<StatsDto> getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
-        return statsMapping(statsRepository.findUniqueStats(start, end, uris));
+        return statsMapping(hitJdbcRepository.findUniqueStats(start, end, uris));
     }
 
     private List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
-        return statsMapping(statsRepository.findStats(start, end, uris));
+        if (!rollupWriter.isRollupEnabled()) {
+            return statsMapping(hitJdbcRepository.findStats(start, end, true, uris));
+        }
+
+        Map<StatsKey, Long> totals = new HashMap<>();
+        for (StatsSegment segment : statsQueryPlanner.plan(start, end, List.of(RollupGranularity.values()))) {
+            findSegmentStats(segment, uris).forEach(stats ->
+                    totals.merge(new StatsKey(stats.getApp(), stats.getUri()), stats.getHits(), Long::sum));
+        }
+        return sortedStats(totals);
+    }
+
+    private List<StatsDto> getApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<StatsKey, HyperLogLog> sketches = new HashMap<>();
+        for (StatsSegment segment : statsQueryPlanner.plan(start, end, RollupGranularity.withSketches())) {
+            if (segment.isRaw()) {
+                sketchRepository.findDistinctIps(segment.start(), segment.end(), segment.endInclusive(), uris,
+                        (key, ip) -> sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(ip));
+            } else {
+                sketchRepository.findSketches(segment.granularity(), segment.start(), segment.end(), uris,
+                        (key, sketch) -> sketches.merge(key, sketch, (left, right) -> {
+                            left.merge(right);
+                            return left;
+                        }));
+            }
+        }
+
+        Map<StatsKey, Long> estimates = new HashMap<>();
+        sketches.forEach((key, sketch) -> estimates.put(key, sketch.estimate()));
+        return sortedStats(estimates);
+    }
+
+    private List<StatsDto> sortedStats(Map<StatsKey, Long> totals) {
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<StatsKey, Long>comparingByValue().reversed())
+                .map(entry -> StatsDto.builder()
+                        .app(entry.getKey().app())
+                        .uri(entry.getKey().uri())
+                        .hits(entry.getValue())
+                        .build())
+                .toList();
+    }
+
+    private List<Stats> findSegmentStats(StatsSegment segment, List<String> uris) {
+        if (!segment.isRaw()) {
+            return rollupRepository.findStats(segment.granularity(), segment.start(), segment.end(), uris);
+        }
+        return hitJdbcRepository.findStats(segment.start(), segment.end(), segment.endInclusive(), uris);
     }
 
     private List<StatsDto> statsMapping(List<Stats> stats) {
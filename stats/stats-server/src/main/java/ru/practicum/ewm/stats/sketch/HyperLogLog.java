@@ -0,0 +1,125 @@
+package ru.practicum.ewm.stats.sketch;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog с точностью p = 12: 4096 однобайтовых регистров, то есть 4 КиБ на скетч
+ * (плюс байт заголовка в сериализованном виде). Стандартная ошибка оценки 1.04 / sqrt(4096) ≈ 1.6%.
+ * Слияние - побайтовый максимум регистров, то есть 4096 сравнений независимо от числа IP.
+ * Скетч с небольшим числом ненулевых регистров сериализуется разреженно: после заголовка идут тройки
+ * (номер регистра в двух байтах, значение). Форматы различаются длиной: у плотного она ровно 4097 байт.
+ */
+public class HyperLogLog {
+    public static final int PRECISION = 12;
+    public static final int REGISTERS = 1 << PRECISION;
+    public static final double STANDARD_ERROR = 1.04 / Math.sqrt(REGISTERS);
+
+    private static final int SPARSE_ENTRY_BYTES = 3;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length == 0 || bytes[0] != PRECISION) {
+            throw new IllegalArgumentException("Некорректный формат скетча HyperLogLog");
+        }
+        byte[] registers = new byte[REGISTERS];
+        if (bytes.length == REGISTERS + 1) {
+            System.arraycopy(bytes, 1, registers, 0, REGISTERS);
+            return new HyperLogLog(registers);
+        }
+        if ((bytes.length - 1) % SPARSE_ENTRY_BYTES != 0) {
+            throw new IllegalArgumentException("Некорректный формат скетча HyperLogLog");
+        }
+        for (int i = 1; i < bytes.length; i += SPARSE_ENTRY_BYTES) {
+            int index = ((bytes[i] & 0xff) << 8) | (bytes[i + 1] & 0xff);
+            if (index >= REGISTERS) {
+                throw new IllegalArgumentException("Некорректный формат скетча HyperLogLog");
+            }
+            registers[index] = bytes[i + 2];
+        }
+        return new HyperLogLog(registers);
+    }
+
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+        if (nonZero * SPARSE_ENTRY_BYTES >= REGISTERS) {
+            byte[] bytes = new byte[REGISTERS + 1];
+            bytes[0] = PRECISION;
+            System.arraycopy(registers, 0, bytes, 1, REGISTERS);
+            return bytes;
+        }
+        byte[] bytes = new byte[1 + nonZero * SPARSE_ENTRY_BYTES];
+        bytes[0] = PRECISION;
+        int position = 1;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] != 0) {
+                bytes[position++] = (byte) (i >>> 8);
+                bytes[position++] = (byte) i;
+                bytes[position++] = registers[i];
+            }
+        }
+        return bytes;
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        long rest = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
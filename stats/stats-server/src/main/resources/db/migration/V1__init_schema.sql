@@ -0,0 +1,101 @@
+-- Сырые хиты секционированы по месяцам времени хита: запросы /stats за период читают только нужные секции,
+-- а старые секции удаляются целиком (см. HitPartitionMaintenance).
+CREATE SEQUENCE IF NOT EXISTS hits_id_seq;
+
+CREATE TABLE IF NOT EXISTS hits
+(
+    id        BIGINT NOT NULL DEFAULT nextval('hits_id_seq'),
+    app       VARCHAR(128) NOT NULL,
+    uri       VARCHAR(255) NOT NULL,
+    ip        VARCHAR(16) NOT NULL,
+    timestamp timestamp WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+ALTER SEQUENCE hits_id_seq OWNED BY hits.id;
+
+-- Индекс создаётся на родительской таблице и наследуется каждой секцией
+CREATE INDEX IF NOT EXISTS idx_hits_uri_timestamp ON hits (uri, timestamp);
+
+-- Хиты вне созданных секций (очень старые или далёкие будущие) попадают сюда, а не отклоняются
+CREATE TABLE IF NOT EXISTS hits_default PARTITION OF hits DEFAULT;
+
+-- Создаёт секцию hits_YYYY_MM для месяца, которому принадлежит month, если её ещё нет
+CREATE OR REPLACE FUNCTION create_hits_partition(month DATE) RETURNS VOID AS $$
+DECLARE
+    from_date DATE := date_trunc('month', month)::DATE;
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF hits FOR VALUES FROM (%L) TO (%L)',
+                   'hits_' || to_char(from_date, 'YYYY_MM'), from_date, (from_date + INTERVAL '1 month')::DATE);
+END
+$$ LANGUAGE plpgsql;
+
+DO $$
+BEGIN
+    FOR i IN 0..2 LOOP
+        PERFORM create_hits_partition((current_date + make_interval(months => i))::DATE);
+    END LOOP;
+END
+$$;
+
+CREATE TABLE IF NOT EXISTS hits_rollup_minute
+(
+    app    VARCHAR(128) NOT NULL,
+    uri    VARCHAR(255) NOT NULL,
+    bucket timestamp WITHOUT TIME ZONE NOT NULL,
+    hits   BIGINT NOT NULL,
+    PRIMARY KEY (app, uri, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS hits_rollup_hour
+(
+    app    VARCHAR(128) NOT NULL,
+    uri    VARCHAR(255) NOT NULL,
+    bucket timestamp WITHOUT TIME ZONE NOT NULL,
+    hits   BIGINT NOT NULL,
+    PRIMARY KEY (app, uri, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS hits_rollup_day
+(
+    app    VARCHAR(128) NOT NULL,
+    uri    VARCHAR(255) NOT NULL,
+    bucket timestamp WITHOUT TIME ZONE NOT NULL,
+    hits   BIGINT NOT NULL,
+    PRIMARY KEY (app, uri, bucket)
+);
+
+-- Скетчи HyperLogLog уникальных IP (см. HyperLogLog): байт точности и 4096 регистров.
+-- Слияние - побайтовый максимум регистров, выполняется в приложении (SketchRepository.merge);
+-- функция hll_merge не используется и удалена в V5.
+CREATE OR REPLACE FUNCTION hll_merge(current_sketch BYTEA, new_sketch BYTEA) RETURNS BYTEA AS $$
+DECLARE
+    merged BYTEA := current_sketch;
+    i INT;
+BEGIN
+    FOR i IN 1..length(current_sketch) - 1 LOOP
+        IF get_byte(new_sketch, i) > get_byte(merged, i) THEN
+            merged := set_byte(merged, i, get_byte(new_sketch, i));
+        END IF;
+    END LOOP;
+    RETURN merged;
+END
+$$ LANGUAGE plpgsql IMMUTABLE STRICT;
+
+CREATE TABLE IF NOT EXISTS hits_hll_hour
+(
+    app    VARCHAR(128) NOT NULL,
+    uri    VARCHAR(255) NOT NULL,
+    bucket timestamp WITHOUT TIME ZONE NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (app, uri, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS hits_hll_day
+(
+    app    VARCHAR(128) NOT NULL,
+    uri    VARCHAR(255) NOT NULL,
+    bucket timestamp WITHOUT TIME ZONE NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (app, uri, bucket)
+);
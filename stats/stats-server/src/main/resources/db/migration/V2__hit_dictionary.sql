@@ -0,0 +1,44 @@
+-- Словари приложений и URI: в hits хранятся целочисленные ссылки вместо повторяющихся строк,
+-- IP хранится в inet (вмещает и IPv6). Кэш словарей в процессе - HitDictionary.
+CREATE TABLE IF NOT EXISTS hit_apps
+(
+    id   SERIAL PRIMARY KEY,
+    name VARCHAR(128) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS hit_uris
+(
+    id   SERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+INSERT INTO hit_apps (name) SELECT DISTINCT app FROM hits ON CONFLICT DO NOTHING;
+INSERT INTO hit_uris (name) SELECT DISTINCT uri FROM hits ON CONFLICT DO NOTHING;
+
+ALTER TABLE hits
+    ADD COLUMN app_id     INT REFERENCES hit_apps (id),
+    ADD COLUMN uri_id     INT REFERENCES hit_uris (id),
+    ADD COLUMN ip_address INET;
+
+UPDATE hits h
+SET app_id     = a.id,
+    uri_id     = u.id,
+    ip_address = h.ip::INET
+FROM hit_apps a, hit_uris u
+WHERE a.name = h.app AND u.name = h.uri;
+
+DROP INDEX IF EXISTS idx_hits_uri_timestamp;
+
+ALTER TABLE hits
+    DROP COLUMN app,
+    DROP COLUMN uri,
+    DROP COLUMN ip;
+
+ALTER TABLE hits RENAME COLUMN ip_address TO ip;
+
+ALTER TABLE hits
+    ALTER COLUMN app_id SET NOT NULL,
+    ALTER COLUMN uri_id SET NOT NULL,
+    ALTER COLUMN ip SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_hits_uri_timestamp ON hits (uri_id, timestamp);
@@ -0,0 +1,3 @@
+-- Поиск URI по префиксу (POST /stats/query с uriPrefix): LIKE 'prefix%' использует индекс
+-- только с классом операторов varchar_pattern_ops, уникальный индекс по name для этого не подходит.
+CREATE INDEX IF NOT EXISTS idx_hit_uris_name_pattern ON hit_uris (name varchar_pattern_ops);
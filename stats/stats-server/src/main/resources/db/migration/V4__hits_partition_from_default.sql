@@ -0,0 +1,20 @@
+-- Секция за месяц, хиты которого уже лежат в hits_default (например, пришли до её создания), не может быть
+-- создана через PARTITION OF: её строки остались бы в секции по умолчанию. Поэтому секция создаётся отдельной
+-- таблицей, строки за месяц переносятся в неё из hits_default и только затем она подключается к hits.
+CREATE OR REPLACE FUNCTION create_hits_partition(month DATE) RETURNS VOID AS $$
+DECLARE
+    from_date      DATE := date_trunc('month', month)::DATE;
+    to_date        DATE := (from_date + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'hits_' || to_char(from_date, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE hits INCLUDING DEFAULTS, ' ||
+                   'CHECK (timestamp >= %L AND timestamp < %L))', partition_name, from_date, to_date);
+    EXECUTE format('WITH moved AS (DELETE FROM hits_default WHERE timestamp >= %L AND timestamp < %L RETURNING *) ' ||
+                   'INSERT INTO %I SELECT * FROM moved', from_date, to_date, partition_name);
+    EXECUTE format('ALTER TABLE hits ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, from_date, to_date);
+END
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,2 @@
+-- Скетчи HyperLogLog сливаются в приложении (SketchRepository.merge), функция из V1 не используется.
+DROP FUNCTION IF EXISTS hll_merge(BYTEA, BYTEA);
@@ -0,0 +1,75 @@
+package ru.practicum.ewm.stats.counter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UriCounterTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 10, 0);
+
+    @Test
+    void countsRangesThatDoNotCutBuckets() {
+        UriCounter counter = counter(60);
+        counter.record("ewm", "10.0.0.1", START.plusSeconds(10));
+        counter.record("ewm", "10.0.0.2", START.plusSeconds(20));
+        counter.record("ewm", "10.0.0.1", START.plusMinutes(5));
+
+        assertThat(counter.count(START, START.plusHours(1), false)).isEqualTo(3);
+        assertThat(counter.count(START.plusMinutes(1), START.plusHours(1), false)).isEqualTo(1);
+        assertThat(counter.count(START, START.plusSeconds(30), false)).isEqualTo(2);
+        // граница внутри корзины, на которую приходятся хиты с обеих сторон - точно не посчитать
+        assertThat(counter.count(START.plusSeconds(15), START.plusHours(1), false)).isEqualTo(-1);
+    }
+
+    @Test
+    void foldsBucketsOlderThanWindow() {
+        UriCounter counter = counter(10);
+        for (int minute = 0; minute < 100; minute++) {
+            counter.record("ewm", "10.0.0.1", START.plusMinutes(minute));
+        }
+
+        assertThat(counter.count(START, START.plusMinutes(100), false)).isEqualTo(100);
+        assertThat(counter.count(START.plusMinutes(95), START.plusMinutes(100), false)).isEqualTo(5);
+        // начало диапазона попадает в свёрнутую историю
+        assertThat(counter.count(START.plusMinutes(50), START.plusMinutes(100), false)).isEqualTo(-1);
+    }
+
+    @Test
+    void uniqueIpsAnswerOnlyWholeHistory() {
+        UriCounter counter = counter(60);
+        counter.record("ewm", "10.0.0.1", START);
+        counter.record("ewm", "10.0.0.1", START.plusMinutes(1));
+        counter.record("ewm", "10.0.0.2", START.plusMinutes(2));
+
+        assertThat(counter.count(START.minusDays(1), START.plusDays(1), true)).isEqualTo(2);
+        assertThat(counter.count(START.plusMinutes(1), START.plusDays(1), true)).isEqualTo(-1);
+    }
+
+    @Test
+    void differentSpellingsOfIpv6AreOneVisitor() {
+        UriCounter counter = counter(60);
+        counter.record("ewm", "2001:db8::1", START);
+        counter.record("ewm", "2001:DB8:0:0:0:0:0:1", START.plusSeconds(1));
+        counter.record("ewm", "::ffff:10.0.0.1", START.plusSeconds(2));
+        counter.record("ewm", "10.0.0.1", START.plusSeconds(3));
+
+        assertThat(counter.count(START, START.plusMinutes(1), true)).isEqualTo(3);
+    }
+
+    @Test
+    void dropsIpsWhenBudgetIsExhausted() {
+        UriCounter counter = new UriCounter(100, new AtomicLong(1), 60);
+        counter.record("ewm", "10.0.0.1", START);
+        counter.record("ewm", "10.0.0.2", START.plusSeconds(1));
+
+        assertThat(counter.count(START, START.plusMinutes(1), true)).isEqualTo(-1);
+        assertThat(counter.count(START, START.plusMinutes(1), false)).isEqualTo(2);
+    }
+
+    private UriCounter counter(long windowMinutes) {
+        return new UriCounter(100, new AtomicLong(1_000), windowMinutes);
+    }
+}
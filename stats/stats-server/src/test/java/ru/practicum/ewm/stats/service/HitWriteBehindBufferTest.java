@@ -0,0 +1,54 @@
+package ru.practicum.ewm.stats.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.stats.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class HitWriteBehindBufferTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void capacityIsReleasedOnlyAfterBatchIsWritten() throws Exception {
+        HitBatchWriter hitBatchWriter = mock(HitBatchWriter.class);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return null;
+        }).when(hitBatchWriter).write(anyList());
+        HitWriteBehindBuffer buffer = new HitWriteBehindBuffer(hitBatchWriter, meterRegistry, true, 1, 1, 10, 10,
+                1_000, HitOverflowPolicy.DROP, 1_000);
+        buffer.start();
+        try {
+            buffer.submit(hit());
+            assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // пачка взята из очереди, но не записана: место ещё занято
+            buffer.submit(hit());
+            assertThat(meterRegistry.counter("stats.ingest.dropped").count()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            buffer.stop();
+        }
+    }
+
+    private EndpointHit hit() {
+        return EndpointHit.builder()
+                .app("ewm")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
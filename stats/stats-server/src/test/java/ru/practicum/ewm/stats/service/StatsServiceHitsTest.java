@@ -0,0 +1,89 @@
+package ru.practicum.ewm.stats.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.stats.model.EndpointHit;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class StatsServiceHitsTest {
+    private static final String VALID = "{\"app\":\"ewm\",\"uri\":\"/events/1\",\"ip\":\"10.0.0.1\","
+            + "\"timestamp\":\"2024-01-01 10:00:00\"}";
+
+    private final List<Integer> writtenBatches = new ArrayList<>();
+    private StatsService statsService;
+
+    @BeforeEach
+    void setUp() {
+        HitBatchWriter hitBatchWriter = mock(HitBatchWriter.class);
+        doAnswer(invocation -> {
+            List<EndpointHit> batch = invocation.getArgument(0);
+            if (!batch.isEmpty()) {
+                writtenBatches.add(batch.size());
+            }
+            return null;
+        }).when(hitBatchWriter).write(anyList());
+        statsService = new StatsService(null, null, hitBatchWriter, null, new ObjectMapper(),
+                null, null, null, null, null);
+        ReflectionTestUtils.setField(statsService, "bulkBatchSize", 2);
+    }
+
+    @Test
+    void savesAllValidHits() throws Exception {
+        assertThat(statsService.hits(body(VALID, VALID, VALID)).getSaved()).isEqualTo(3);
+        assertThat(writtenBatches).containsExactly(2, 1);
+    }
+
+    @Test
+    void reportsIndexOfHitWithMalformedTimestamp() {
+        String invalid = VALID.replace("2024-01-01 10:00:00", "01.01.2024");
+
+        assertThatThrownBy(() -> statsService.hits(body(VALID, VALID, invalid)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("#2")
+                .hasMessageContaining("сохранено хитов: 2")
+                .hasMessageContaining("01.01.2024");
+        assertThat(writtenBatches).containsExactly(2);
+    }
+
+    @Test
+    void rejectsHitsWithoutRequiredFields() {
+        assertThatThrownBy(() -> statsService.hits(body(VALID, VALID.replace("\"app\":\"ewm\",", ""))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("#1")
+                .hasMessageContaining("Приложение не может быть пустым");
+        assertThatThrownBy(() -> statsService.hits(body(VALID.replace("\"uri\":\"/events/1\",", ""))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("#0")
+                .hasMessageContaining("URI не может быть пустым");
+        assertThatThrownBy(() -> statsService.hits(body(VALID.replace("10.0.0.1", "example.com"))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("#0")
+                .hasMessageContaining("Некорректный IP-адрес");
+        assertThat(writtenBatches).isEmpty();
+    }
+
+    @Test
+    void reportsIndexOfMalformedJson() {
+        assertThatThrownBy(() -> statsService.hits(body(VALID, "{\"app\":")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("#1")
+                .hasMessageContaining("сохранено хитов: 0");
+    }
+
+    private InputStream body(String... hits) {
+        return new ByteArrayInputStream(String.join("\n", hits).getBytes(StandardCharsets.UTF_8));
+    }
+}
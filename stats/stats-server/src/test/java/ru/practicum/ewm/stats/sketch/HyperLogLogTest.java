@@ -0,0 +1,112 @@
+package ru.practicum.ewm.stats.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HyperLogLogTest {
+    private static final int[] CARDINALITIES = {10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    @Test
+    void estimateStaysWithinThreeStandardErrors() {
+        for (int cardinality : CARDINALITIES) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < cardinality; i++) {
+                sketch.add(ip(i));
+            }
+            double error = Math.abs(sketch.estimate() - cardinality) / (double) cardinality;
+            assertThat(error)
+                    .as("ошибка оценки для %d IP", cardinality)
+                    .isLessThanOrEqualTo(3 * HyperLogLog.STANDARD_ERROR);
+        }
+    }
+
+    @Test
+    void mergedEstimateMatchesSingleSketch() {
+        HyperLogLog merged = new HyperLogLog();
+        HyperLogLog single = new HyperLogLog();
+        for (int part = 0; part < 10; part++) {
+            HyperLogLog sketch = new HyperLogLog();
+            // половина адресов каждой части повторяется в следующей
+            for (int i = part * 5_000; i < part * 5_000 + 10_000; i++) {
+                sketch.add(ip(i));
+                single.add(ip(i));
+            }
+            merged.merge(HyperLogLog.fromBytes(sketch.toBytes()));
+        }
+        assertThat(merged.estimate()).isEqualTo(single.estimate());
+    }
+
+    @Test
+    void lowCardinalitySketchIsSerializedSparse() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 50; i++) {
+            sketch.add(ip(i));
+        }
+        byte[] bytes = sketch.toBytes();
+
+        assertThat(bytes.length).isLessThan(HyperLogLog.REGISTERS / 10);
+        assertThat(HyperLogLog.fromBytes(bytes).toBytes()).isEqualTo(bytes);
+        assertThat(HyperLogLog.fromBytes(bytes).estimate()).isEqualTo(sketch.estimate());
+        assertThat(new HyperLogLog().toBytes()).hasSize(1);
+    }
+
+    @Test
+    void highCardinalitySketchIsSerializedDense() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add(ip(i));
+        }
+        byte[] bytes = sketch.toBytes();
+
+        assertThat(bytes).hasSize(HyperLogLog.REGISTERS + 1);
+        assertThat(HyperLogLog.fromBytes(bytes).estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void malformedBytesAreRejected() {
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[]{HyperLogLog.PRECISION, 0}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[]{HyperLogLog.PRECISION, (byte) 0xff, 0, 1}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Запрос unique за длинный период сливает по скетчу на каждый час или день: слияние и оценка
+     * не должны зависеть от числа IP. Порог с большим запасом, чтобы тест не зависел от машины.
+     */
+    @Test
+    void mergingAYearOfDailySketchesIsFast() {
+        HyperLogLog[] days = new HyperLogLog[365];
+        for (int day = 0; day < days.length; day++) {
+            days[day] = new HyperLogLog();
+            for (int i = 0; i < 1_000; i++) {
+                days[day].add(ip(day * 1_000 + i));
+            }
+        }
+        byte[][] stored = new byte[days.length][];
+        for (int day = 0; day < days.length; day++) {
+            stored[day] = days[day].toBytes();
+        }
+
+        long started = System.nanoTime();
+        HyperLogLog total = new HyperLogLog();
+        for (byte[] bytes : stored) {
+            total.merge(HyperLogLog.fromBytes(bytes));
+        }
+        long estimate = total.estimate();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(Math.abs(estimate - 365_000) / 365_000.0).isLessThanOrEqualTo(3 * HyperLogLog.STANDARD_ERROR);
+        assertThat(elapsedMillis).isLessThan(500);
+    }
+
+    private static String ip(int value) {
+        return (value >>> 24 & 0xff) + "." + (value >>> 16 & 0xff) + "." + (value >>> 8 & 0xff) + "." + (value & 0xff);
+    }
+}